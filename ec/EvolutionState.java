@@ -7,6 +7,7 @@
 
 package ec;
 
+import ec.alps.EvaluationCounter;
 import ec.alps.Engine;
 import ec.alps.layers.ALPSLayers;
 import ec.alps.layers.Layer;
@@ -202,7 +203,9 @@ public class EvolutionState implements Singleton {
     private static final long serialVersionUID = 1;
     /** */
     public Replacement replacement;
-    /** */
+    /**
+     * layers, counters and ALPS settings of the job this state belongs to; shared by all its layers
+     */
     public ALPSLayers alps;
     /** */
     public Map<String, Double> nodeCountTerminalSet = new LinkedHashMap<String, Double>();
@@ -516,44 +519,70 @@ public class EvolutionState implements Singleton {
      * @author anthony
      */
     public void run(ALPSLayers alpsLayers, int condition) {
+        boolean reinitialized = startRun(alpsLayers, condition);
+
+        if (!reinitialized || condition == C_STARTED_FRESH) {
+            alps.layers.get(alps.index).result = evolve();
+            if (reinitialized)
+                alps.layers.get(alps.index).initializerFlag = false;
+        }
+
+        finishRun(alpsLayers);
+    }
+
+    /**
+     * First half of run(ALPSLayers, int): hands the layers to this state, refreshes the FSALPS roulette and
+     * (re)initializes the bottom layer when its initializer flag is set.
+     * The ALPS layer schedulers call this before evolve() is invoked for the layer.
+     *
+     * @param alpsLayers all ALPS layers, with the index pointing at this state's layer
+     * @param condition  C_STARTED_FRESH or C_STARTED_FROM_CHECKPOINT
+     * @return true if the bottom layer was started fresh (or from checkpoint) in this call
+     */
+    public boolean startRun(ALPSLayers alpsLayers, int condition) {
         /* all running instances of Evolution state have access to ALPS Layers */
         this.alps = alpsLayers;
-        //int result = R_NOTDONE;
 
         /* NOTE: Node count is performed for every generation in which there are individuals in the last layer
          * use largest layer node terminal count
          * This is performed only when Engine.use_only_default_node_pr is FALSE and the generational frequency count flag
          * for the last layer is TRUE
          * */
-        if (!Engine.fsalps_use_only_default_node_pr && Engine.fsalps_last_layer_gen_freq_count &&
+        if (!alps.fsalps_use_only_default_node_pr && alps.fsalps_gen_freq_count &&
                 Operations.popSize(alps.layers.get(alps.layers.size() - 1).evolutionState) > 0)
-            Engine.roulette = new Roulette(
+            alps.roulette = new Roulette(
                     alps.layers.get(alps.layers.size() - 1).evolutionState.nodeCountTerminalSet);
 
 
         if (alps.layers.get(alps.index).getIsBottomLayer() && alps.layers.get(alps.index).initializerFlag) {
             /* NOTE: Node count is performed during initialization of new individuals in layer 0
              * This condition is performed only if Engine.use_only_default_node_pr is Boolean.FALSE
-             * and Engine.fsalps_last_layer_gen_freq_count is Boolean.FALSE :: This last check avoids multiple count process
+             * and alps.fsalps_gen_freq_count is Boolean.FALSE :: This last check avoids multiple count process
              * in the even that that flag is Boolean.TRUE.
              * */
-            if (!Engine.fsalps_use_only_default_node_pr && !Engine.fsalps_last_layer_gen_freq_count &&
+            if (!alps.fsalps_use_only_default_node_pr && !alps.fsalps_gen_freq_count &&
                     Operations.popSize(alps.layers.get(alps.layers.size() - 1).evolutionState) > 0)
-                Engine.roulette = new Roulette(
+                alps.roulette = new Roulette(
                         alps.layers.get(alps.layers.size() - 1).evolutionState.nodeCountTerminalSet);
 
             if ((condition == C_STARTED_FRESH)) {
                 startFresh();
-                alps.layers.get(alps.index).result = evolve();
-                alps.layers.get(alps.index).initializerFlag = false;
             } else // condition == C_STARTED_FROM_CHECKPOINT
             {
                 startFromCheckpoint();
             }
-        } else {
-            alps.layers.get(alps.index).result = evolve();
+            return true;
         }
+        return false;
+    }
 
+    /**
+     * Second half of run(ALPSLayers, int): inter-layer migration and layer bookkeeping once
+     * the layer has been evolved for this generation.
+     *
+     * @param alpsLayers all ALPS layers, with the index pointing at this state's layer
+     */
+    public void finishRun(ALPSLayers alpsLayers) {
         /* Attempt inter-layer individual migration  */
         //replacement = (ALPSReplacement)
         //		(parameters.getInstanceForParameter(new Parameter(P_REPLACEMENT),null,ALPSReplacement.class));
@@ -562,12 +591,19 @@ public class EvolutionState implements Singleton {
         /* count only when evolve is performed */
         alpsLayers.layers.get(alpsLayers.index).layerGenerationalCount++;
 
-        /*count evaluations in a layer */
-        alpsLayers.layers.get(alpsLayers.index).layerEvaluationCount +=
+        /* count evaluations: the individuals the evaluator actually evaluated, not the population size */
+        if (!(evaluator instanceof EvaluationCounter) && alps.budget.byCost())
+            output.fatal("alps.budget-scheduler = cost needs an evaluator that counts its evaluations "
+                    + "(ec.alps.EvaluationCounter), but " + evaluator.getClass().getName() + " does not");
+        int evaluated = evaluator instanceof EvaluationCounter ?
+                ((EvaluationCounter) evaluator).takeEvaluations(this, alps.index) :
                 Operations.popSize(alps.layers.get(alps.index).evolutionState);
 
+        /*count evaluations in a layer */
+        alpsLayers.layers.get(alpsLayers.index).layerEvaluationCount += evaluated;
+
         /* count evaluations */
-        Engine.globalEvaluations += Operations.popSize(alps.layers.get(alps.index).evolutionState);
+        alps.globalEvaluations += evaluated;
 
         /* perform describe(...) for last layer */
         if ((alps.layers.get(alps.layers.size() - 1).result != R_NOTDONE) && (alps.index == alps.layers.size() - 1))
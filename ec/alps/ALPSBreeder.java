@@ -1,12 +1,16 @@
 package ec.alps;
 
+import ec.BreedingPipeline;
 import ec.EvolutionState;
+import ec.Evolve;
 import ec.Individual;
 import ec.Initializer;
 import ec.Population;
 import ec.simple.SimpleBreeder;
 import ec.util.*;
 
+import java.util.ArrayList;
+
 
 /**
  * Breeds each subpopulation separately, with no inter-population exchange,
@@ -41,6 +45,10 @@ import ec.util.*;
  * <tr><td valign=top><tt><i>base</i>.sequential</tt><br>
  * <font size=-1>boolean (default = false)</font></td>
  * <td valign=top>(should we breed just one subpopulation each generation (as opposed to all of them)?)</td></tr>
+ * <tr><td valign=top><tt><i>base</i>.task-size</tt><br>
+ * <font size=-1>int >= 1 or auto (default = not set)</font></td>
+ * <td valign=top>(with breedthreads > 1, breed in tasks of this many offspring on the run's BreedingPool instead of
+ * one fixed chunk per thread)</td></tr>
  * </table>
  *
  * @author Anthony Awuley and Sean Luke
@@ -51,11 +59,31 @@ public class ALPSBreeder extends SimpleBreeder {
 
     public static final String POP_SIZE = "size";
     public static final String SUB_POP = "subpop";
+    /** */
+    public static final String P_TASK_SIZE = "task-size";
+    /** */
+    public static final String V_AUTO = "auto";
+    /** */
+    public static final int C_NO_TASKS = 0;
+    /** */
+    public static final int C_AUTO = -1;
     /**
      *
      */
     private static final long serialVersionUID = 1;
     public int[] subpopSize;
+    /**
+     * surrogate pre-screening of offspring (breed.prescreen.*)
+     */
+    public SurrogateScreen screen;
+    /**
+     * offspring per breeding task, C_AUTO or C_NO_TASKS to breed as SimpleBreeder does
+     */
+    public int taskSize = C_NO_TASKS;
+    /**
+     * generators the breeding threads reseed for every task
+     */
+    transient MersenneTwisterFast[] taskRandom;
 
 
     public void setup(final EvolutionState state, final Parameter base) {
@@ -132,9 +160,131 @@ public class ALPSBreeder extends SimpleBreeder {
             }
         }
 
+        screen = new SurrogateScreen();
+        screen.setup(state, base.push(SurrogateScreen.P_PRESCREEN));
+
+        if (state.parameters.exists(base.push(P_TASK_SIZE), null)) {
+            if (state.parameters.getString(base.push(P_TASK_SIZE), null).equalsIgnoreCase(V_AUTO))
+                taskSize = C_AUTO;
+            else {
+                taskSize = state.parameters.getInt(base.push(P_TASK_SIZE), null, 1);
+                if (taskSize < 1)
+                    state.output.error("Task size must be either an integer >= 1 or 'auto'", base.push(P_TASK_SIZE));
+            }
+            if (sequentialBreeding)
+                state.output.warning("Breeding tasks do not support sequential breeding; breeding as SimpleBreeder does instead.",
+                        base.push(P_TASK_SIZE), base.push(P_SEQUENTIAL_BREEDING));
+        }
+
         state.output.exitIfErrors();
     }
 
+    /**
+     * Breeds as SimpleBreeder does, then lets the SurrogateScreen replace hopeless offspring.
+     * Parents are aged once all breeding threads are done (ParentAging). Breeding tasks are only used when
+     * SimpleBreeder would breed all subpopulations on cloned pipelines; sequential breeding, or not cloning the
+     * pipeline and population, falls back to SimpleBreeder
+     */
+    public Population breedPopulation(EvolutionState state) {
+        state.alps.aging.begin(state);
+        Population newpop = (taskSize == C_NO_TASKS || state.breedthreads < 2 ||
+                sequentialBreeding || !clonePipelineAndPopulation) ?
+                super.breedPopulation(state) : breedTasks(state);
+        screen.screen(state, newpop, this);
+        state.alps.aging.merge(state);
+        return newpop;
+    }
+
+    /**
+     * Breeds the offspring of all subpopulations in tasks of taskSize individuals on the run's BreedingPool.
+     * <p>
+     * Every task clones its own pipeline and reseeds the generator of the thread that runs it from a seed drawn
+     * here, in task order, so the offspring do not depend on which thread breeds which task. The generators of
+     * this layer and of the lower layer, which the pipelines select parents from, are replaced by the task
+     * generators while the tasks run.
+     */
+    protected Population breedTasks(EvolutionState state) {
+        Population newpop = (Population) state.population.emptyClone();
+        loadElites(state, newpop);
+
+        int total = 0;
+        for (int sub = 0; sub < newpop.subpops.length; sub++)
+            total += computeSubpopulationLength(state, newpop, sub, 0);
+        int size = (taskSize == C_AUTO) ? Math.max(1, total / (state.breedthreads * 4)) : taskSize;
+
+        ArrayList<Task> tasks = new ArrayList<>();
+        for (int sub = 0; sub < newpop.subpops.length; sub++) {
+            int length = computeSubpopulationLength(state, newpop, sub, 0);
+            for (int from = 0; from < length; from += size)
+                tasks.add(new Task(sub, from, Math.min(size, length - from), state.random[0].nextLong()));
+        }
+
+        if (taskRandom == null || taskRandom.length < state.breedthreads) {
+            taskRandom = new MersenneTwisterFast[state.breedthreads];
+            for (int i = 0; i < taskRandom.length; i++)
+                taskRandom[i] = new MersenneTwisterFast(0);
+        }
+        EvolutionState lower = (state.alps.index > 0) ? state.alps.layers.get(state.alps.index - 1).evolutionState : null;
+        MersenneTwisterFast[] random = state.random;
+        MersenneTwisterFast[] lowerRandom = (lower != null) ? lower.random : null;
+        state.random = taskRandom;
+        if (lower != null)
+            lower.random = taskRandom;
+
+        BreedingPool.of(state).breed(state, this, newpop, tasks);
+
+        state.random = random;
+        if (lower != null)
+            lower.random = lowerRandom;
+        return newpop;
+    }
+
+    /**
+     * Breeds the offspring of one task on breeding thread threadnum, as SimpleBreeder.breedPopChunk(...) does
+     */
+    void breedTask(EvolutionState state, Population newpop, Task task, int threadnum) {
+        state.random[threadnum].setSeed(task.seed);
+        Evolve.primeGenerator(state.random[threadnum]);
+
+        Individual[] inds = newpop.subpops[task.subpop].individuals;
+        if (!shouldBreedSubpop(state, task.subpop, threadnum)) {
+            System.arraycopy(state.population.subpops[task.subpop].individuals, task.from, inds, task.from, task.length);
+            return;
+        }
+
+        BreedingPipeline bp = (BreedingPipeline) (newpop.subpops[task.subpop].species.pipe_prototype.clone());
+        if (!bp.produces(state, newpop, task.subpop, threadnum))
+            state.output.fatal("The Breeding Pipeline of subpopulation " + task.subpop + " does not produce individuals of the expected species " + newpop.subpops[task.subpop].species.getClass().getName() + " or fitness " + newpop.subpops[task.subpop].species.f_prototype);
+        bp.prepareToProduce(state, task.subpop, threadnum);
+
+        int upperbound = task.from + task.length;
+        for (int x = task.from; x < upperbound; )
+            x += bp.produce(1, upperbound - x, x, task.subpop, inds, state, threadnum);
+
+        bp.finishProducing(state, task.subpop, threadnum);
+    }
+
+    /**
+     * offspring task.from ... task.from + task.length - 1 of subpopulation task.subpop, bred from seed
+     */
+    static class Task {
+        /** */
+        final int subpop;
+        /** */
+        final int from;
+        /** */
+        final int length;
+        /** */
+        final long seed;
+
+        Task(int subpop, int from, int length, long seed) {
+            this.subpop = subpop;
+            this.from = from;
+            this.length = length;
+            this.seed = seed;
+        }
+    }
+
 
     /**
      * Elites are often stored in the top part of the subpopulation; this function returns what part
@@ -248,6 +398,14 @@ public class ALPSBreeder extends SimpleBreeder {
                     }
                 }
             }
+
+            /* elites were ranked on a sample of the fitness cases, they keep their place on all of them */
+            if (numElites(state, sub) > 0 && state.evaluator instanceof ALPSEvaluator
+                    && ((ALPSEvaluator) state.evaluator).caseSampleSize(state) > 0) {
+                Individual[] inds = newpop.subpops[sub].individuals;
+                for (int x = inds.length - numElites(state, sub); x < inds.length; x++)
+                    ((ALPSEvaluator) state.evaluator).evaluateOnAllCases(state, inds[x], sub);
+            }
         }
 
         // optionally force reevaluation
@@ -0,0 +1,78 @@
+package ec.alps;
+
+import ec.Initializer;
+import ec.Population;
+import ec.alps.layers.Replacement;
+import ec.util.Parameter;
+import ec.util.ParameterDatabase;
+
+/**
+ * ALPS settings read while breeding and migrating, resolved once by Engine.setup.
+ * <p>
+ * The breeding pipelines used to look up alps.selection-pressure on every produce(...) call, the replacement
+ * tournaments alps.tournament-size on every tournament, and migration and steady-state breeding built a new
+ * Parameter for every pop.subpop.N.size they read, each time a string hash lookup in the ParameterDatabase.
+ * The values cannot change during a run, so every layer reads them here instead (state.alps.config).
+ *
+ * @author Anthony Awuley
+ */
+public final class ALPSConfig {
+
+    /** */
+    public static final String SELECTION_PRESSURE = "selection-pressure";
+
+    /**
+     * alps.selection-pressure: probability of selecting parents from the current rather than the lower layer
+     */
+    public final double selectionPressure;
+    /**
+     * alps.tournament-size: tournament size of the replacement strategies
+     */
+    public final int tournamentSize;
+    /**
+     * pop.subpop.N.size of every subpopulation
+     */
+    private final int[] subpopSizes;
+
+    /** */
+    public ALPSConfig(double selectionPressure, int tournamentSize, int[] subpopSizes) {
+        this.selectionPressure = selectionPressure;
+        this.tournamentSize = tournamentSize;
+        this.subpopSizes = subpopSizes.clone();
+    }
+
+    /**
+     * Reads the settings from parameters
+     */
+    public static ALPSConfig resolve(ParameterDatabase parameters) {
+        int numSubpops = Math.max(0, parameters.getIntWithDefault(
+                new Parameter(Initializer.P_POP).push(Population.P_SIZE), null, 0));
+        int[] sizes = new int[numSubpops];
+        for (int sub = 0; sub < numSubpops; sub++)
+            sizes[sub] = parameters.getInt(new Parameter(Initializer.P_POP).
+                    push(Population.P_SUBPOP).push(sub + "").push(Replacement.POP_SIZE), null);
+
+        return new ALPSConfig(
+                parameters.getDouble(Engine.base().push(SELECTION_PRESSURE), null),
+                parameters.getInt(Engine.base().push(Replacement.ALPS_TOURNAMENT_SIZE), null),
+                sizes);
+    }
+
+    /**
+     * @return expected number of individuals of subpopulation sub (pop.subpop.sub.size)
+     */
+    public int subpopSize(int sub) {
+        return subpopSizes[sub];
+    }
+
+    /**
+     * @return expected number of individuals of the first numSubpops subpopulations together
+     */
+    public int expectedPopulation(int numSubpops) {
+        int total = 0;
+        for (int sub = 0; sub < numSubpops; sub++)
+            total += subpopSizes[sub];
+        return total;
+    }
+
+}
@@ -1,10 +1,18 @@
 package ec.alps;
 
 import ec.*;
+import ec.alps.layers.ALPSLayers;
+import ec.alps.layers.Replacement;
+import ec.gp.koza.KozaFitness;
 import ec.simple.SimpleEvaluator;
 import ec.simple.SimpleProblemForm;
 import ec.util.*;
 
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
 
 /**
  * The SimpleEvaluator is a simple, non-coevolved generational evaluator which
@@ -21,18 +29,184 @@ import ec.util.*;
  * Modified by Anthony Awuley to include some ALPS properties
  */
 
-public class ALPSEvaluator extends SimpleEvaluator {
+public class ALPSEvaluator extends SimpleEvaluator implements EvaluationCounter {
 
+    /**
+     * eval.chunk-size value for chunks sized from the measured evaluation cost, see nextChunkSize(...)
+     */
+    public static final String V_ADAPTIVE = "adaptive";
+    /** */
+    public static final int C_ADAPTIVE = -1;
+    /**
+     * with adaptive chunks, a chunk should take about this long to evaluate
+     */
+    public static final long ADAPTIVE_CHUNK_NANOS = 1000000L;
+    /**
+     * eval.chunk-size value for chunks balanced by estimated evaluation cost, see planCostChunks(...)
+     */
+    public static final String V_COST = "cost";
+    /** */
+    public static final int C_COST = -2;
+    /**
+     * platform (default): eval.threads long-lived threads. virtual: a virtual thread per chunk, see VirtualEvaluation
+     */
+    public static final String P_THREADS_MODE = "threads-mode";
+    public static final String V_PLATFORM = "platform";
+    public static final String V_VIRTUAL = "virtual";
+    /**
+     * with eval.threads-mode = virtual, the maximum number of evaluations in flight
+     * (default VIRTUAL_IN_FLIGHT_PER_THREAD * eval.threads)
+     */
+    public static final String P_VIRTUAL_IN_FLIGHT = "virtual-in-flight";
+    /**
+     * every evaluation in flight needs a Problem clone per layer and a generator of its own, seeded from
+     * state.random[0], so the default stays a small multiple of eval.threads
+     */
+    public static final int VIRTUAL_IN_FLIGHT_PER_THREAD = 4;
+    /**
+     * fitnesses on all fitness cases kept for evaluateOnAllCases(...) without eval.fitness-cache; enough for the
+     * elites and best individuals of a layer
+     */
+    public static final int ALL_CASES_CACHE_SIZE = 256;
+    /**
+     * number of fitnesses kept by the run's FitnessCache, 0 (default) for no cache. Needs a FixedCasesProblemForm
+     */
+    public static final String P_FITNESS_CACHE = "fitness-cache";
+    /**
+     * racing (early abort) with a RacingProblemForm: none (default); worst, against the worst error of the
+     * layer's previous evaluation; or reverse-tournament, against the worst of alps.tournament-size errors
+     * picked at random from it, as Replacement.reverseTournament picks the individual a migrant replaces.
+     * The Problem must also be a FixedCasesProblemForm: only errors measured in full on the same case set as the
+     * individual being evaluated are used. When the cases differ from the previous evaluation (fixed cases or
+     * case samples drawn per generation), the thresholds come from the errors measured so far in the current
+     * evaluation, once half of the subpopulation has been measured in full
+     */
+    public static final String P_RACE = "race";
+    public static final String V_RACE_NONE = "none";
+    public static final String V_RACE_WORST = "worst";
+    public static final String V_RACE_TOURNAMENT = "reverse-tournament";
+    public static final int C_RACE_NONE = 0;
+    public static final int C_RACE_WORST = 1;
+    public static final int C_RACE_TOURNAMENT = 2;
 
-    Object[] lock = new Object[0];          // Arrays are serializable
-    int individualCounter = 0;
-    int subPopCounter = 0;
-    int chunkSize;  // a value >= 1, or C_AUTO
+    /**
+     * next unclaimed position in the flattened subpopulation/individual index space.
+     * threads claim chunks with getAndAdd, so dispatching a chunk takes no lock
+     */
+    AtomicInteger cursor = new AtomicInteger(0);
+    /**
+     * subpopStart[i] is the flattened position of the first individual of subpopulation i;
+     * the last entry is the total number of individuals
+     */
+    int[] subpopStart = new int[1];
+    /**
+     * measured evaluation time of one individual on one thread, used by adaptive chunks. 0 until measured
+     */
+    double nanosPerIndividual = 0;
+    /**
+     * measured evaluation time of one node on one thread, learned from previous generations. 0 until measured
+     */
+    double nanosPerNode = 0;
+    /**
+     * cost chunks: flattened positions of the individuals, most expensive first, and the end of every chunk
+     * in that order. threads claim chunk numbers from the cursor
+     */
+    int[] costOrder;
+    /** */
+    int[] costChunkEnd;
+    /** */
+    long costTotalNodes;
+    int chunkSize;  // a value >= 1, C_AUTO, C_ADAPTIVE or C_COST
+    /** */
+    boolean virtualThreads = false;
+    /** */
+    int virtualInFlight;
+    /** */
+    int fitnessCacheSize = 0;
+    /** */
+    int race = C_RACE_NONE;
+    /** */
+    int raceTournamentSize = 2;
+    /**
+     * standardized errors of the individuals of every subpopulation evaluated in full in the previous evaluation,
+     * the thresholds racing individuals are compared to. null until the layer has been evaluated once
+     */
+    double[][] raceErrors = null;
+    /**
+     * the case set raceErrors were measured on
+     */
+    Object raceCaseSet = null;
+    /**
+     * errors measured in full during the current evaluation, per subpopulation, and their case set;
+     * guarded by this evaluator
+     */
+    double[][] measuredErrors = null;
+    /** */
+    int[] numMeasured = null;
+    /** */
+    double[] measuredWorst = null;
+    /** */
+    Object measuredCaseSet = null;
+    /**
+     * evaluations stopped early by racing since the last takeEvaluations()
+     */
+    final AtomicLong raceStops = new AtomicLong();
+    /**
+     * index of the layer this evaluator belongs to, -1 until looked up
+     */
+    int layer = -1;
+    /**
+     * problem evaluating elites and the best individuals of the run on all fitness cases, see evaluateOnAllCases(...)
+     */
+    SimpleProblemForm allCasesProblem = null;
+    /**
+     * fitnesses measured on all fitness cases, used by evaluateOnAllCases(...) when the run has no fitness cache
+     */
+    FitnessCache allCasesCache = null;
+    /**
+     * individuals handed to the Problem since the last takeEvaluations(), and the time the Problem took
+     */
+    final AtomicLong evaluations = new AtomicLong();
+    /** */
+    final AtomicLong evaluationNanos = new AtomicLong();
     Population oldpop = null;
+    /**
+     * problem used when evaluating single-threaded, cloned once instead of on every call
+     */
+    SimpleProblemForm singleThreadProblem = null;
+
+    /**
+     * Loads the Problem (and MasterProblem) as Evaluator.setup(...) does.
+     * <p>
+     * SimpleEvaluator.setup(...) rejects every eval.chunk-size other than an integer or auto, so it must not run
+     * before the chunk sizes added here (adaptive, cost) are parsed. Java cannot call Evaluator.setup(...) past
+     * it, so setup(...) loads the Problem itself and parses all of SimpleEvaluator's parameters.
+     */
+    void setupProblem(final EvolutionState state, final Parameter base) {
+        p_problem = (Problem) (state.parameters.getInstanceForParameter(base.push(P_PROBLEM), null, Problem.class));
+        p_problem.setup(state, base.push(P_PROBLEM));
+
+        // Am I a master problem and NOT a slave.  Note that the "eval.i-am-slave" parameter
+        // is not set by the user but rather programmatically by the ec.eval.Slave class
+        if (state.parameters.exists(base.push(P_MASTERPROBLEM), null)
+                && !state.parameters.getBoolean(base.push(P_IAMSLAVE), null, false)) {
+            try {
+                Problem masterproblem = (Problem) (state.parameters.getInstanceForParameter(
+                        base.push(P_MASTERPROBLEM), null, Problem.class));
+                masterproblem.setup(state, base.push(P_MASTERPROBLEM));
+
+                // interpose the master problem between the evaluator and the real problem
+                ((ec.eval.MasterProblem) masterproblem).problem = p_problem;
+                p_problem = masterproblem;
+            } catch (ParamClassLoadException e) {
+                state.output.fatal("Parameter has an invalid value: " + base.push(P_MASTERPROBLEM));
+            }
+        }
+    }
 
     // checks to make sure that the Problem implements SimpleProblemForm
     public void setup(final EvolutionState state, final Parameter base) {
-        super.setup(state, base);
+        setupProblem(state, base);
         if (!(p_problem instanceof SimpleProblemForm))
             state.output.fatal("" + this.getClass() + " used, but the Problem is not of SimpleProblemForm",
                     base.push(P_PROBLEM));
@@ -61,10 +235,76 @@ public class ALPSEvaluator extends SimpleEvaluator {
             chunkSize = C_AUTO;
         } else if (state.parameters.getString(base.push(P_CHUNK_SIZE), null).equalsIgnoreCase(V_AUTO)) {
             chunkSize = C_AUTO;
+        } else if (state.parameters.getString(base.push(P_CHUNK_SIZE), null).equalsIgnoreCase(V_ADAPTIVE)) {
+            chunkSize = C_ADAPTIVE;
+        } else if (state.parameters.getString(base.push(P_CHUNK_SIZE), null).equalsIgnoreCase(V_COST)) {
+            chunkSize = C_COST;
         } else {
             chunkSize = (state.parameters.getInt(base.push(P_CHUNK_SIZE), null, 1));
             if (chunkSize == 0)  // uh oh
-                state.output.fatal("Chunk Size must be either an integer >= 1 or 'auto'", base.push(P_CHUNK_SIZE), null);
+                state.output.fatal("Chunk Size must be either an integer >= 1, 'auto', 'adaptive' or 'cost'", base.push(P_CHUNK_SIZE), null);
+        }
+
+        String mode = state.parameters.getStringWithDefault(base.push(P_THREADS_MODE), null, V_PLATFORM);
+        if (V_VIRTUAL.equalsIgnoreCase(mode)) {
+            if (VirtualEvaluation.isAvailable())
+                virtualThreads = true;
+            else
+                state.output.warning("Virtual threads need Java 21 or later; using " + V_PLATFORM + " threads", base.push(P_THREADS_MODE));
+        } else if (!V_PLATFORM.equalsIgnoreCase(mode))
+            state.output.fatal("Threads mode must be either '" + V_PLATFORM + "' or '" + V_VIRTUAL + "'", base.push(P_THREADS_MODE));
+
+        if (virtualThreads) {
+            virtualInFlight = state.parameters.getIntWithDefault(base.push(P_VIRTUAL_IN_FLIGHT), null,
+                    VIRTUAL_IN_FLIGHT_PER_THREAD * state.evalthreads);
+            if (virtualInFlight < 1)
+                state.output.fatal("Virtual in-flight evaluations must be >= 1", base.push(P_VIRTUAL_IN_FLIGHT));
+
+            /* every evaluation in flight uses its slot number as thread number, so it needs its own generator */
+            if (state.random.length < virtualInFlight) {
+                MersenneTwisterFast[] random = Arrays.copyOf(state.random, virtualInFlight);
+                for (int i = state.random.length; i < random.length; i++)
+                    random[i] = Evolve.primeGenerator(new MersenneTwisterFast(state.random[0].nextLong()));
+                state.random = random;
+            }
+        }
+
+        /* adaptive and cost chunks are only planned for the long-lived platform threads */
+        if ((chunkSize == C_ADAPTIVE || chunkSize == C_COST) && (virtualThreads || state.evalthreads == 1))
+            state.output.warning("Chunk size '" + state.parameters.getString(base.push(P_CHUNK_SIZE), null)
+                    + "' only applies to eval.threads > 1 with " + V_PLATFORM + " threads; it is ignored", base.push(P_CHUNK_SIZE));
+
+        fitnessCacheSize = state.parameters.getIntWithDefault(base.push(P_FITNESS_CACHE), null, 0);
+        if (fitnessCacheSize < 0)
+            state.output.fatal("Fitness cache size must be >= 0", base.push(P_FITNESS_CACHE));
+        else if (fitnessCacheSize > 0 && numTests > 1) {
+            state.output.warning("The fitness cache is not used when individuals are evaluated more than once", base.push(P_FITNESS_CACHE));
+            fitnessCacheSize = 0;
+        } else if (fitnessCacheSize > 0 && !(p_problem instanceof FixedCasesProblemForm)) {
+            state.output.warning("The fitness cache needs a Problem implementing " + FixedCasesProblemForm.class.getName()
+                    + ", as cached fitnesses are only valid on the same fitness cases; cache disabled", base.push(P_FITNESS_CACHE));
+            fitnessCacheSize = 0;
+        }
+
+        String r = state.parameters.getStringWithDefault(base.push(P_RACE), null, V_RACE_NONE);
+        if (V_RACE_WORST.equalsIgnoreCase(r))
+            race = C_RACE_WORST;
+        else if (V_RACE_TOURNAMENT.equalsIgnoreCase(r)) {
+            race = C_RACE_TOURNAMENT;
+            raceTournamentSize = state.parameters.getIntWithDefault(
+                    Engine.base().push(Replacement.ALPS_TOURNAMENT_SIZE), null, raceTournamentSize);
+        } else if (!V_RACE_NONE.equalsIgnoreCase(r))
+            state.output.fatal("Race must be one of '" + V_RACE_NONE + "', '" + V_RACE_WORST + "' or '"
+                    + V_RACE_TOURNAMENT + "'", base.push(P_RACE));
+        if (race != C_RACE_NONE && !(p_problem instanceof RacingProblemForm && p_problem instanceof FixedCasesProblemForm)) {
+            state.output.warning("Racing needs a Problem implementing " + RacingProblemForm.class.getName() + " and "
+                    + FixedCasesProblemForm.class.getName() + "; individuals are evaluated in full", base.push(P_RACE));
+            race = C_RACE_NONE;
+        } else if (race != C_RACE_NONE && ((FixedCasesProblemForm) p_problem).caseSet(state) == null) {
+            state.output.warning("Racing needs fitness cases shared by the individuals of an evaluation, but "
+                    + p_problem.getClass().getName() + " draws new cases for every evaluation; individuals are evaluated in full",
+                    base.push(P_RACE));
+            race = C_RACE_NONE;
         }
     }
 
@@ -127,11 +367,17 @@ public class ALPSEvaluator extends SimpleEvaluator {
             expand(state);
 
         // reset counters.  Only used in multithreading
-        individualCounter = 0;
-        subPopCounter = 0;
-
+        int[] start = new int[state.population.subpops.length + 1];
+        for (int i = 0; i < state.population.subpops.length; i++)
+            start[i + 1] = start[i] + state.population.subpops[i].individuals.length;
+        subpopStart = start;
+        cursor.set(0);
+
+        if (virtualThreads) {
+            VirtualEvaluation.of(state, virtualInFlight).evaluate(state, this, chunkSize > 0 ? chunkSize : 1);
+        }
         // start up if single-threaded?
-        if (state.evalthreads == 1) {
+        else if (state.evalthreads == 1) {
             int[] numinds = new int[state.population.subpops.length];
             int[] from = new int[numinds.length];
 
@@ -140,28 +386,32 @@ public class ALPSEvaluator extends SimpleEvaluator {
                 from[i] = 0;
             }
 
-            SimpleProblemForm prob = null;
-            if (cloneProblem)
-                prob = (SimpleProblemForm) (p_problem.clone());
-            else
-                prob = (SimpleProblemForm) (p_problem);  // just use the prototype
-            evalPopChunk(state, numinds, from, 0, prob);
-        } else {
-            ThreadPool.Worker[] threads = new ThreadPool.Worker[state.evalthreads];
-            for (int i = 0; i < threads.length; i++) {
-                SimpleEvaluatorThread run = new SimpleEvaluatorThread();
-                run.threadnum = i;
-                run.state = state;
-                run.prob = (SimpleProblemForm) (p_problem.clone());
-                threads[i] = pool.start(run, "ECJ Evaluation Thread " + i);
+            if (singleThreadProblem == null) {
+                if (cloneProblem)
+                    singleThreadProblem = (SimpleProblemForm) (p_problem.clone());
+                else
+                    singleThreadProblem = (SimpleProblemForm) (p_problem);  // just use the prototype
             }
-
-            // join
-            pool.joinAll();
+            evalPopChunk(state, numinds, from, 0, singleThreadProblem);
+        } else {
+            /* the threads and their problems belong to the run and are reused by every layer */
+            if (chunkSize == C_COST)
+                planCostChunks(state);
+
+            long began = System.nanoTime();
+            EvaluationPool.of(state).evaluate(state, this);
+
+            int total = subpopStart[subpopStart.length - 1];
+            if (chunkSize == C_ADAPTIVE && total > 0)
+                nanosPerIndividual = (System.nanoTime() - began) * (double) state.evalthreads / total;
+            if (chunkSize == C_COST && costTotalNodes > 0)
+                nanosPerNode = (System.nanoTime() - began) * (double) state.evalthreads / costTotalNodes;
         }
 
         if (numTests > 1)
             contract(state);
+
+        recordRaceErrors(state);
     }
 
 
@@ -201,13 +451,220 @@ public class ALPSEvaluator extends SimpleEvaluator {
             int upperbound = fp + numinds[pop];
             Individual[] inds = subpops[pop].individuals;
             for (int x = fp; x < upperbound; x++)
-                p.evaluate(state, inds[x], pop, threadnum);
+                evaluate(state, inds[x], pop, threadnum, p);
         }
 
         ((ec.Problem) p).finishEvaluating(state, threadnum);
     }
 
 
+    /**
+     * Evaluates a single individual with p, unless eval.fitness-cache is set and the run's FitnessCache
+     * already knows the fitness of its trees. With eval.race set, p may stop early once the individual is
+     * worse than its race threshold. A CaseSamplingProblemForm is told the layer's alps.case-sample-size first
+     */
+    void evaluate(EvolutionState state, Individual ind, int subpop, int threadnum, SimpleProblemForm p) {
+        /* p may be the layer's own Problem, a pool clone or a slot clone; setting it every time is cheaper than tracking which */
+        int sampleSize = caseSampleSize(state);
+        if (p instanceof CaseSamplingProblemForm)
+            ((CaseSamplingProblemForm) p).setCaseSampleSize(sampleSize);
+
+        /* both the cache and racing compare fitnesses measured at different times, on these cases */
+        Object caseSet = null;
+        if ((fitnessCacheSize > 0 || race != C_RACE_NONE) && !ind.evaluated)
+            caseSet = ((FixedCasesProblemForm) p).caseSet(state);
+
+        FitnessCache cache = null;
+        if (fitnessCacheSize > 0 && caseSet != null) {
+            cache = FitnessCache.of(state, fitnessCacheSize);
+            if (cache.lookup(ind, subpop, caseSet)) {
+                if (race != C_RACE_NONE)
+                    measured(state, ind, subpop, caseSet);
+                return;
+            }
+        }
+
+        boolean complete = true;
+        boolean evaluated = ind.evaluated;
+        long began = evaluated ? 0 : System.nanoTime();
+        double threshold = race != C_RACE_NONE && caseSet != null ?
+                raceThreshold(state, subpop, threadnum, caseSet) : Double.POSITIVE_INFINITY;
+        if (threshold < Double.POSITIVE_INFINITY)
+            complete = ((RacingProblemForm) p).evaluate(state, ind, subpop, threadnum, threshold);
+        else
+            p.evaluate(state, ind, subpop, threadnum);
+        if (!evaluated)
+            countEvaluation(System.nanoTime() - began);
+
+        /* the bounded fitness of an individual stopped early is not its fitness */
+        if (!complete)
+            raceStops.incrementAndGet();
+        else if (caseSet != null) {
+            if (cache != null)
+                cache.store(ind, subpop, caseSet);
+            if (race != C_RACE_NONE)
+                measured(state, ind, subpop, caseSet);
+        }
+    }
+
+    /**
+     * @return fitness cases individuals of this evaluator's layer are evaluated on (alps.case-sample-size),
+     * 0 for all cases
+     */
+    int caseSampleSize(EvolutionState state) {
+        ALPSLayers alps = state.alps;
+        if (alps == null || alps.caseSampleSizes == null || !(p_problem instanceof CaseSamplingProblemForm))
+            return 0;
+        if (layer < 0 && alps.layers != null)
+            for (int l = 0; l < alps.layers.size(); l++)
+                if (alps.layers.get(l).evolutionState == state)
+                    layer = l;
+        return layer < 0 ? 0 : alps.caseSampleSizes[Math.min(layer, alps.caseSampleSizes.length - 1)];
+    }
+
+    /**
+     * Evaluates ind again, on all fitness cases, if the run samples the cases of some layer. Elites and the best
+     * individuals of the run keep their place on their full fitness rather than on a lucky sample.
+     * An individual whose trees were measured on the same full case set before (FixedCasesProblemForm), e.g. an
+     * elite kept over several generations of a dataset, takes that fitness instead of being evaluated again.
+     * Single-threaded: called by the breeder and by statistics
+     */
+    public void evaluateOnAllCases(EvolutionState state, Individual ind, int subpop) {
+        if (state.alps == null || state.alps.caseSampleSizes == null || !(p_problem instanceof CaseSamplingProblemForm))
+            return;
+        if (allCasesProblem == null)
+            allCasesProblem = (SimpleProblemForm) (p_problem.clone());
+        ((CaseSamplingProblemForm) allCasesProblem).setCaseSampleSize(0);
+
+        Object caseSet = null;
+        FitnessCache cache = null;
+        if (allCasesProblem instanceof FixedCasesProblemForm
+                && (caseSet = ((FixedCasesProblemForm) allCasesProblem).caseSet(state)) != null) {
+            if (fitnessCacheSize > 0)
+                cache = FitnessCache.of(state, fitnessCacheSize);
+            else {
+                if (allCasesCache == null)
+                    allCasesCache = new FitnessCache(ALL_CASES_CACHE_SIZE);
+                cache = allCasesCache;
+            }
+            if (cache.lookup(ind, subpop, caseSet))
+                return;
+        }
+
+        ind.evaluated = false;
+        long began = System.nanoTime();
+        ((ec.Problem) allCasesProblem).prepareToEvaluate(state, 0);
+        allCasesProblem.evaluate(state, ind, subpop, 0);
+        ((ec.Problem) allCasesProblem).finishEvaluating(state, 0);
+        countEvaluation(System.nanoTime() - began);
+        if (cache != null)
+            cache.store(ind, subpop, caseSet);
+    }
+
+    /** */
+    void countEvaluation(long nanos) {
+        evaluations.incrementAndGet();
+        evaluationNanos.addAndGet(nanos);
+    }
+
+    /**
+     * Counts individuals evaluated by the Problem, not fitness cache hits and individuals that were evaluated
+     * already
+     */
+    public int takeEvaluations(EvolutionState state, int layer) {
+        long n = evaluations.getAndSet(0);
+        long nanos = evaluationNanos.getAndSet(0);
+        long stops = raceStops.getAndSet(0);
+        if (state.alps != null && state.alps.budget != null) {
+            state.alps.budget.record(layer, n, nanos);
+            state.alps.budget.recordRaceStops(layer, stops);
+        }
+        return (int) n;
+    }
+
+    /**
+     * Thresholds come from the previous evaluation if it used caseSet too, and otherwise from the errors
+     * measured so far in the current evaluation on caseSet, once half of subpop has been measured; before
+     * that individuals are evaluated in full.
+     *
+     * @return the error an individual of subpop, evaluated on caseSet, has to stay below to be evaluated in
+     * full, or +infinity if there is nothing to race against
+     */
+    double raceThreshold(EvolutionState state, int subpop, int threadnum, Object caseSet) {
+        if (raceErrors != null && caseSet.equals(raceCaseSet))
+            return raceThreshold(state, threadnum, raceErrors[subpop], raceErrors[subpop].length);
+
+        synchronized (this) {
+            if (measuredErrors == null || !caseSet.equals(measuredCaseSet)
+                    || 2 * numMeasured[subpop] < state.population.subpops[subpop].individuals.length)
+                return Double.POSITIVE_INFINITY;
+            if (race == C_RACE_WORST)
+                return measuredWorst[subpop];
+            return raceThreshold(state, threadnum, measuredErrors[subpop], numMeasured[subpop]);
+        }
+    }
+
+    /**
+     * @return the worst of the first n errors (which are sorted in worst mode), or the worst of
+     * raceTournamentSize of them picked at random
+     */
+    double raceThreshold(EvolutionState state, int threadnum, double[] errors, int n) {
+        if (n == 0)
+            return Double.POSITIVE_INFINITY;
+        if (race == C_RACE_WORST)
+            return errors[n - 1];
+
+        double worst = errors[state.random[threadnum].nextInt(n)];
+        for (int x = 1; x < raceTournamentSize; x++)
+            worst = Math.max(worst, errors[state.random[threadnum].nextInt(n)]);
+        return worst;
+    }
+
+    /**
+     * Notes the error of ind, just evaluated in full on caseSet, as a threshold for the next evaluation
+     */
+    synchronized void measured(EvolutionState state, Individual ind, int subpop, Object caseSet) {
+        if (!(ind.fitness instanceof KozaFitness))
+            state.output.fatal("Racing needs KozaFitness, but subpopulation " + subpop + " uses "
+                    + ind.fitness.getClass().getName());
+        /* errors on other cases are no thresholds for these */
+        if (measuredErrors == null || !caseSet.equals(measuredCaseSet)) {
+            measuredErrors = new double[state.population.subpops.length][16];
+            numMeasured = new int[measuredErrors.length];
+            measuredWorst = new double[measuredErrors.length];
+            Arrays.fill(measuredWorst, Double.NEGATIVE_INFINITY);
+        }
+        if (numMeasured[subpop] == measuredErrors[subpop].length)
+            measuredErrors[subpop] = Arrays.copyOf(measuredErrors[subpop], 2 * numMeasured[subpop]);
+        double error = ((KozaFitness) ind.fitness).standardizedFitness();
+        measuredErrors[subpop][numMeasured[subpop]++] = error;
+        measuredWorst[subpop] = Math.max(measuredWorst[subpop], error);
+        measuredCaseSet = caseSet;
+    }
+
+    /**
+     * Keeps the errors measured in full in the evaluation just done, sorted, as thresholds for the next
+     * evaluation. Individuals stopped early, and individuals carried over with a fitness from other cases,
+     * are left out. If nothing was measured, the previous thresholds are kept
+     */
+    synchronized void recordRaceErrors(EvolutionState state) {
+        if (race == C_RACE_NONE || measuredErrors == null)
+            return;
+
+        double[][] errors = new double[measuredErrors.length][];
+        for (int x = 0; x < errors.length; x++) {
+            errors[x] = Arrays.copyOf(measuredErrors[x], numMeasured[x]);
+            Arrays.sort(errors[x]);
+        }
+        raceErrors = errors;
+        raceCaseSet = measuredCaseSet;
+        measuredErrors = null;
+        numMeasured = null;
+        measuredWorst = null;
+        measuredCaseSet = null;
+    }
+
+
     // computes the chunk size if 'auto' is set.  This may be different depending on the subpopulation,
     // which is backward-compatible with previous ECJ approaches.
     int computeChunkSizeForSubpopulation(EvolutionState state, int subpop, int threadnum) {
@@ -224,65 +681,144 @@ public class ALPSEvaluator extends SimpleEvaluator {
 
 
     /**
-     * A helper class for implementing multithreaded evaluation
+     * @return true if EvaluationPool.evaluateBatch may evaluate this layer, i.e. no individual needs
+     * to be evaluated several times and merged and evaluation is not on virtual threads
      */
-    class SimpleEvaluatorThread implements Runnable {
-        public int threadnum;
-        public EvolutionState state;
-        public SimpleProblemForm prob = null;
+    boolean canEvaluateInBatch() {
+        return numTests == 1 && !virtualThreads;
+    }
 
-        public void run() {
-            Subpopulation[] subpops = state.population.subpops;
+    /**
+     * Evaluates chunks of the population until none are left. Called by every thread of the
+     * EvaluationPool, each with its own thread number and problem
+     */
+    void evalChunks(EvolutionState state, int threadnum, SimpleProblemForm prob) {
+        Subpopulation[] subpops = state.population.subpops;
+        int total = subpopStart[subpops.length];
 
-            int[] numinds = new int[subpops.length];
-            int[] from = new int[subpops.length];
+        if (chunkSize == C_COST) {
+            evalCostChunks(state, threadnum, prob);
+            return;
+        }
 
-            int count = 1;
-            int start = 0;
-            int subpop = 0;
+        int[] numinds = new int[subpops.length];
+        int[] from = new int[subpops.length];
+
+        while (true) {
+            // claim the next chunk; several threads may do this at once, each gets its own range
+            int count = nextChunkSize(state, threadnum, total);
+            int start = cursor.getAndAdd(count);
+            if (start >= total) // all done
+                return;
+            int end = Math.min(start + count, total);
+
+            // a chunk may cover the end of one subpopulation and the start of the next
+            for (int i = 0; i < subpops.length; i++) {
+                int lo = Math.max(start, subpopStart[i]);
+                int hi = Math.min(end, subpopStart[i + 1]);
+                numinds[i] = Math.max(0, hi - lo);
+                from[i] = numinds[i] > 0 ? lo - subpopStart[i] : 0;
+            }
+            evalPopChunk(state, numinds, from, threadnum, prob);
+        }
+    }
 
-            while (true) {
-                // We need to grab the information about the next chunk we're responsible for.  This stays longer
-                // in the lock than I'd like :-(
-                synchronized (lock) {
-                    // has everyone done all the jobs?
-                    if (subPopCounter >= subpops.length) // all done
-                        return;
-
-                    // has everyone finished the jobs for this subpopulation?
-                    if (individualCounter >= subpops[subPopCounter].individuals.length)  // try again, jump to next subpop
-                    {
-                        individualCounter = 0;
-                        subPopCounter++;
-
-                        // has everyone done all the jobs?  Check again.
-                        if (subPopCounter >= subpops.length) // all done
-                            return;
-                    }
-
-                    start = individualCounter;
-                    subpop = subPopCounter;
-                    count = chunkSize;
-                    if (count == C_AUTO)  // compute automatically for subpopulations
-                        count = computeChunkSizeForSubpopulation(state, subpop, threadnum);
-
-                    individualCounter += count;  // it can be way more than we'll actually do, that's fine
-                }
+    /**
+     * Cost-balanced partition for eval.chunk-size = cost. GP evaluation time grows with the number of nodes, and
+     * upper layers carry far larger trees than layer 0, so equal counts of individuals are not equal work.
+     * Individuals are ordered by Individual.size() (nodes of a GPIndividual), largest first, and cut into chunks
+     * of about equal node count. Handing out the large trees first keeps a few bloated individuals from
+     * finishing last on a single thread. The number of fitness cases multiplies every individual's cost alike,
+     * so it is already part of the learned nanosPerNode and needs no separate term.
+     * <p>
+     * A chunk holds a quarter of a thread's share of the nodes, capped to about ADAPTIVE_CHUNK_NANOS of work
+     * once nanosPerNode has been measured.
+     */
+    void planCostChunks(EvolutionState state) {
+        Subpopulation[] subpops = state.population.subpops;
+        int total = subpopStart[subpops.length];
+
+        final long[] cost = new long[total];
+        Integer[] order = new Integer[total];
+        costTotalNodes = 0;
+        for (int i = 0; i < subpops.length; i++)
+            for (int j = 0; j < subpops[i].individuals.length; j++) {
+                Individual ind = subpops[i].individuals[j];
+                int pos = subpopStart[i] + j;
+                cost[pos] = ind.evaluated ? 1 : Math.max(1, ind.size());
+                order[pos] = pos;
+                costTotalNodes += cost[pos];
+            }
 
-                // Modify the true count
-                if (count >= subpops[subpop].individuals.length - start)
-                    count = subpops[subpop].individuals.length - start;
+        Arrays.sort(order, new Comparator<Integer>() {
+            public int compare(Integer a, Integer b) {
+                return Long.compare(cost[b], cost[a]);
+            }
+        });
+
+        long target = Math.max(1, costTotalNodes / (4 * state.evalthreads));
+        if (nanosPerNode > 0)
+            target = Math.min(target, Math.max(1, (long) (ADAPTIVE_CHUNK_NANOS / nanosPerNode)));
+
+        costOrder = new int[total];
+        int[] ends = new int[total];
+        int chunks = 0;
+        long sum = 0;
+        for (int k = 0; k < total; k++) {
+            costOrder[k] = order[k];
+            sum += cost[order[k]];
+            if (sum >= target || k == total - 1) {
+                ends[chunks++] = k + 1;
+                sum = 0;
+            }
+        }
+        costChunkEnd = Arrays.copyOf(ends, chunks);
+    }
 
-                // Load into arrays to reuse evalPopChunk
-                for (int i = 0; i < from.length; i++)
-                    numinds[i] = 0;
+    /**
+     * Evaluates the chunks planned by planCostChunks(...) until none are left
+     */
+    void evalCostChunks(EvolutionState state, int threadnum, SimpleProblemForm prob) {
+        Subpopulation[] subpops = state.population.subpops;
 
-                numinds[subpop] = count;
-                from[subpop] = start;
-                evalPopChunk(state, numinds, from, threadnum, prob);
+        int chunk;
+        while ((chunk = cursor.getAndIncrement()) < costChunkEnd.length) {
+            ((ec.Problem) prob).prepareToEvaluate(state, threadnum);
+            for (int k = (chunk == 0 ? 0 : costChunkEnd[chunk - 1]); k < costChunkEnd[chunk]; k++) {
+                int pos = costOrder[k];
+                int subpop = 0;
+                while (pos >= subpopStart[subpop + 1])
+                    subpop++;
+                evaluate(state, subpops[subpop].individuals[pos - subpopStart[subpop]], subpop, threadnum, prob);
             }
+            ((ec.Problem) prob).finishEvaluating(state, threadnum);
         }
     }
 
+    /**
+     * Size of the next chunk claimed by threadnum. For "adaptive", chunks shrink as the population runs out
+     * (guided scheduling, so all threads finish at about the same time) and are capped so that one chunk takes
+     * about ADAPTIVE_CHUNK_NANOS: cheap fitness functions get large chunks and rarely touch the cursor, expensive
+     * ones get small chunks that balance well.
+     */
+    int nextChunkSize(EvolutionState state, int threadnum, int total) {
+        if (chunkSize == C_AUTO) {  // compute automatically for subpopulations
+            int position = cursor.get();
+            int subpop = 0;
+            while (subpop < subpopStart.length - 2 && position >= subpopStart[subpop + 1])
+                subpop++;
+            return Math.max(1, computeChunkSizeForSubpopulation(state, subpop, threadnum));
+        }
+
+        if (chunkSize == C_ADAPTIVE) {
+            int size = Math.max(1, (total - cursor.get()) / (2 * state.evalthreads));
+            if (nanosPerIndividual > 0)
+                size = Math.min(size, Math.max(1, (int) (ADAPTIVE_CHUNK_NANOS / nanosPerIndividual)));
+            return size;
+        }
+
+        return chunkSize;
+    }
+
 
 }
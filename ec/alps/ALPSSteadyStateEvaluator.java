@@ -0,0 +1,51 @@
+package ec.alps;
+
+import ec.EvolutionState;
+import ec.Individual;
+import ec.steadystate.SteadyStateEvaluator;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SteadyStateEvaluator for SStateEvolutionState that counts the individuals it evaluates (EvaluationCounter).
+ * <p>
+ * An individual is counted when it comes back from getNextEvaluatedIndividual(), i.e. once its fitness is known.
+ * The time counted is the time evaluateIndividual(...) takes, which is the time of the evaluation itself unless
+ * the Problem is a MasterProblem that hands individuals on to slaves.
+ *
+ * @author Anthony Awuley
+ */
+public class ALPSSteadyStateEvaluator extends SteadyStateEvaluator implements EvaluationCounter {
+
+    /** */
+    private static final long serialVersionUID = 1;
+
+    /**
+     * individuals evaluated since the last takeEvaluations(), and the time their evaluation took
+     */
+    final AtomicLong evaluations = new AtomicLong();
+    /** */
+    final AtomicLong evaluationNanos = new AtomicLong();
+
+    public void evaluateIndividual(final EvolutionState state, Individual ind, int subpop) {
+        long began = System.nanoTime();
+        super.evaluateIndividual(state, ind, subpop);
+        evaluationNanos.addAndGet(System.nanoTime() - began);
+    }
+
+    public Individual getNextEvaluatedIndividual() {
+        Individual ind = super.getNextEvaluatedIndividual();
+        if (ind != null)
+            evaluations.incrementAndGet();
+        return ind;
+    }
+
+    public int takeEvaluations(EvolutionState state, int layer) {
+        long n = evaluations.getAndSet(0);
+        long nanos = evaluationNanos.getAndSet(0);
+        if (state.alps != null && state.alps.budget != null)
+            state.alps.budget.record(layer, n, nanos);
+        return (int) n;
+    }
+
+}
@@ -0,0 +1,157 @@
+package ec.alps;
+
+import ec.EvolutionState;
+import ec.Evolve;
+import ec.Individual;
+import ec.eval.MasterProblem;
+import ec.simple.SimpleProblemForm;
+import ec.steadystate.QueueIndividual;
+import ec.util.MersenneTwisterFast;
+import ec.util.Parameter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Asynchronous steady state evaluator for SStateEvolutionState.
+ * <p>
+ * The plain SteadyStateEvaluator evaluates an individual as soon as it is handed over, so steadyEvolve() breeds,
+ * evaluates and integrates one individual at a time. This evaluator instead keeps up to eval.in-flight individuals
+ * evaluating on the run's EvaluationPool while the layer keeps breeding, and hands them back to steadyEvolve()
+ * in the order they finish. Integration (deselectors, duplicate hash, statistics) is unchanged; it simply sees
+ * individuals whose fitness became available later. Variable-cost fitness functions therefore no longer leave
+ * all but one core idle.
+ * <p>
+ * Evaluations never outlive the layer's turn: SStateEvolutionState.evolve() calls drain() after its steady
+ * state steps, which stops new submissions and blocks until every outstanding individual has come back and
+ * been integrated. Otherwise individuals bred before inter-layer migration or a restart of layer 0
+ * (startFresh) would be integrated afterwards, carrying genetic material and age from before the restart, pool
+ * threads would keep reading the layer's state while other layers evolve, and evaluations outstanding at the
+ * end of the run would be dropped uncounted.
+ * <p>
+ * Breeding continues on the layer's own thread with state.random[0], so pool threads use thread numbers from
+ * 1 to eval.threads; setup adds generators to state.random where needed. Evaluations are counted as
+ * ALPSSteadyStateEvaluator does, with the time measured on the pool thread.
+ * <p>
+ * Parameters:<br>
+ * eval.in-flight: maximum number of individuals being evaluated at once (default eval.threads)
+ *
+ * @author Anthony Awuley
+ */
+public class AsyncSteadyStateEvaluator extends ALPSSteadyStateEvaluator {
+
+    /** */
+    private static final long serialVersionUID = 1;
+    /** */
+    public static final String P_IN_FLIGHT = "in-flight";
+
+    /** */
+    int maxInFlight;
+    /**
+     * individuals whose evaluation has been submitted but not yet returned by getNextEvaluatedIndividual()
+     */
+    int inFlight = 0;
+    /** */
+    int lastSubpop = -1;
+    /**
+     * true while evolve() integrates the outstanding evaluations at the end of the layer's turn
+     */
+    boolean draining = false;
+    /** */
+    transient LinkedBlockingQueue<QueueIndividual> finished = new LinkedBlockingQueue<>();
+    /** */
+    transient ArrayList<Future<?>> pending = new ArrayList<>();
+
+    public void setup(final EvolutionState state, final Parameter base) {
+        super.setup(state, base);
+
+        if (!(p_problem instanceof SimpleProblemForm) || p_problem instanceof MasterProblem)
+            state.output.fatal("" + this.getClass() + " needs a non-distributed Problem of SimpleProblemForm",
+                    base.push(P_PROBLEM));
+
+        maxInFlight = state.parameters.getIntWithDefault(base.push(P_IN_FLIGHT), null, state.evalthreads);
+        if (maxInFlight < 1)
+            state.output.fatal("In-flight evaluations must be >= 1", base.push(P_IN_FLIGHT));
+
+        /* one generator for breeding plus one per pool thread */
+        if (state.random.length < state.evalthreads + 1) {
+            MersenneTwisterFast[] random = Arrays.copyOf(state.random, state.evalthreads + 1);
+            for (int i = state.random.length; i < random.length; i++)
+                random[i] = Evolve.primeGenerator(new MersenneTwisterFast(state.random[0].nextLong()));
+            state.random = random;
+        }
+    }
+
+    /**
+     * @return true while fewer than eval.in-flight individuals are being evaluated, and not draining
+     */
+    public boolean canEvaluate() {
+        return !draining && inFlight < maxInFlight;
+    }
+
+    /**
+     * Stops accepting individuals until the outstanding ones have been returned by getNextEvaluatedIndividual()
+     *
+     * @return true while individuals are outstanding; call getNextEvaluatedIndividual() until it is false
+     */
+    public boolean drain() {
+        draining = inFlight > 0;
+        return draining;
+    }
+
+    /**
+     * Submits ind to the evaluation threads and returns immediately
+     */
+    public void evaluateIndividual(final EvolutionState state, Individual ind, int subpop) {
+        inFlight++;
+        pending.add(EvaluationPool.of(state).evaluateAsync(state, this, ind, subpop, finished));
+    }
+
+    /**
+     * Returns the next individual whose evaluation finished, or null if none has finished yet. When eval.in-flight
+     * individuals are outstanding, or while draining, breeding cannot continue anyway, so this waits for one to
+     * finish.
+     */
+    public Individual getNextEvaluatedIndividual() {
+        QueueIndividual q = finished.poll();
+        if (q == null && inFlight > 0 && (draining || inFlight >= maxInFlight)) {
+            try {
+                q = finished.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        checkFailures();
+        if (q == null)
+            return null;
+
+        inFlight--;
+        evaluations.incrementAndGet();
+        lastSubpop = q.subpop;
+        return q.ind;
+    }
+
+    public int getSubpopulationOfEvaluatedIndividual() {
+        return lastSubpop;
+    }
+
+    /**
+     * rethrows a failed evaluation, which would otherwise be kept silently by its Future
+     */
+    private void checkFailures() {
+        for (int i = pending.size() - 1; i >= 0; i--)
+            if (pending.get(i).isDone()) {
+                try {
+                    pending.remove(i).get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    throw new RuntimeException("Evaluation failed", e.getCause());
+                }
+            }
+    }
+
+}
@@ -0,0 +1,109 @@
+package ec.alps;
+
+import ec.EvolutionState;
+import ec.Population;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Long-lived breeding threads shared by all layers of an ALPS run, used by ALPSBreeder when breed.task-size is
+ * set.
+ * <p>
+ * SimpleBreeder starts breedthreads new threads every generation and gives each one a fixed slice of every
+ * subpopulation, so a thread that drew large trees holds up all the others. Here the offspring of all
+ * subpopulations are cut into tasks of a few individuals, and idle threads claim the next task from a shared
+ * cursor until none is left. Every pool thread has a fixed thread number below breedthreads, used to index
+ * state.random and ParentAging.
+ *
+ * @author Anthony Awuley
+ */
+public class BreedingPool {
+
+    /** */
+    private final ExecutorService executor;
+    /** */
+    private final int numThreads;
+
+    /**
+     * @param numThreads number of breeding threads (breedthreads)
+     */
+    public BreedingPool(int numThreads) {
+        this.numThreads = numThreads;
+        this.executor = Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+            int count = 0;
+
+            public synchronized Thread newThread(Runnable r) {
+                Thread t = new BreedingThread(r, count++);
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * Returns the pool of the run state belongs to, creating it with breedthreads threads on first use
+     */
+    public static BreedingPool of(EvolutionState state) {
+        synchronized (state.alps) {
+            if (state.alps.breedingPool == null)
+                state.alps.breedingPool = new BreedingPool(state.breedthreads);
+            return state.alps.breedingPool;
+        }
+    }
+
+    /**
+     * Breeds all tasks into newpop on the pool threads and returns once every task is done
+     */
+    public void breed(final EvolutionState state, final ALPSBreeder breeder, final Population newpop,
+                      final ArrayList<ALPSBreeder.Task> tasks) {
+        final AtomicInteger cursor = new AtomicInteger(0);
+        ArrayList<Future<?>> runs = new ArrayList<>();
+        for (int i = 0; i < Math.min(numThreads, tasks.size()); i++)
+            runs.add(executor.submit(new Runnable() {
+                public void run() {
+                    BreedingThread t = (BreedingThread) Thread.currentThread();
+                    int next;
+                    while ((next = cursor.getAndIncrement()) < tasks.size())
+                        breeder.breedTask(state, newpop, tasks.get(next), t.threadnum);
+                }
+            }));
+
+        for (Future<?> run : runs) {
+            try {
+                run.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                state.output.fatal("Interrupted while waiting for the breeding threads");
+            } catch (ExecutionException e) {
+                state.output.fatal("Breeding failed: " + e.getCause());
+            }
+        }
+    }
+
+    /**
+     * stops the breeding threads at the end of a job
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * pool thread with a fixed thread number
+     */
+    static class BreedingThread extends Thread {
+        /** */
+        final int threadnum;
+
+        BreedingThread(Runnable r, int threadnum) {
+            super(r, "ALPS Breeding Thread " + threadnum);
+            this.threadnum = threadnum;
+        }
+    }
+
+}
@@ -0,0 +1,24 @@
+package ec.alps;
+
+import ec.simple.SimpleProblemForm;
+
+/**
+ * A SimpleProblemForm that can evaluate individuals on a random subsample of its fitness cases, used by
+ * ALPSEvaluator when alps.case-sample-size is set.
+ * <p>
+ * Before every evaluation the evaluator tells the Problem how many cases the individual's layer uses. The
+ * subsample must be the same for all individuals evaluated on the same number of cases in one global
+ * generation, so that their fitnesses can be compared, and should change from generation to generation. The
+ * fitness should estimate the fitness on all cases, e.g. an error sum scaled up by the sampled fraction, since
+ * elites and the best individual of the run are evaluated on all cases and compared to sampled individuals.
+ *
+ * @author Anthony Awuley
+ */
+public interface CaseSamplingProblemForm extends SimpleProblemForm {
+
+    /**
+     * @param size fitness cases the following evaluations use, 0 for all of them
+     */
+    void setCaseSampleSize(int size);
+
+}
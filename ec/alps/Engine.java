@@ -10,8 +10,6 @@ import ec.fsalps.Roulette;
 import ec.util.*;
 
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
-import java.util.Map;
 
 /**
  * This class is the entry point for ALPS (it contains the main() method), Loads all
@@ -30,12 +28,30 @@ public class Engine extends Evolve {
     public final static String AGING_SCHEME = "aging-scheme";
     /** */
     public static final String K_FOLD_CROSS_VALIDATION_CHUNCK = "k-fold-cross-validation-size";
+    /**
+     * fitness cases per evaluation, for all layers or per layer (alps.case-sample-size.L); 0 (default) for all
+     */
+    public static final String CASE_SAMPLE_SIZE = "case-sample-size";
     /**
      * ALPS
      */
     public static final String AGE_ONLY_CURRENT_LAYER = "age-only-current-layer";
     public static final String ALWAYS_BREED_MAXIMUM_POP = "always-breed-maximum-population";
     public static final String ASSIGN_MAX_PARENT_AGE = "assign-max-parent-age";
+    /**
+     * how layers are advanced within a global generation: sequential (default) or parallel
+     */
+    public static final String SCHEDULER = "scheduler";
+    public static final String V_SCHEDULER_SEQUENTIAL = "sequential";
+    public static final String V_SCHEDULER_PARALLEL = "parallel";
+    /**
+     * number of jobs run concurrently by a ParallelJobRunner (default 1, i.e. one job after another). may be "auto"
+     */
+    public static final String PARALLEL_JOBS = "parallel-jobs";
+    /**
+     * how the evaluation budget is shared by the layers: none (default) or cost, see EvaluationBudget
+     */
+    public static final String BUDGET_SCHEDULER = "budget-scheduler";
     /**
      * FSALPS
      */
@@ -51,112 +67,22 @@ public class Engine extends Evolve {
      */
     static final String P_MUZZLE = "muzzle";
     //public final static String ALPS_EVALUATIONS     = "alps.number-of-evaluations";
-    /** */
-    public static ALPSLayers alps;
-    /** */
-    public static int completeGenerationalCount = 0; //changed from 1
     /**
-     * used in steady state evolution
+     * all layers of this job together with the job's counters and ALPS settings.
+     * every layer's EvolutionState shares this instance through state.alps
      */
-    public static int completeEvaluationCount = 0;
-    /**
-     * global count of evaluations. initialized to 0
-     */
-    public static int globalEvaluations = 0;
-    /**
-     * This is the same as the number of expected population in a layer
-     * this is modified during startFresh() in steady state
-     */
-    public static int generationSize = 0; //
-    /**
-     * Evaluation is always measured using alpsEvaluations. when generation is specified, it is converted to alpsEvaluations using
-     * numGenerations * alpsAgeLayers * generationSize;
-     * else the number of evaluations specified is used.
-     * this gives the total number of evaluations required to complete
-     * all ALPS runs
-     */
-    public static int alpsEvaluations = 0; //modified in code
-    /**
-     * number of jobs specified from parameter file
-     */
-    public static int numberOfJobs = 1;
-    /**
-     * this is the total number of specified generations in parameter file
-     */
-    public static int numGenerations;
-    /**
-     * number of chunks available when using k-fold cross validation
-     */
-    public static int kFoldCrossValidationSize = 1;
-    /**
-     * Used to keep node usage for terminal sets
-     * stored default node settings for terminals
-     */
-    public static Map<String, Double> nodeCountTerminalSet = new LinkedHashMap<String, Double>();
-    /**
-     * Used to keep node usage for function sets
-     * stored default node settings for non-terminals
-     */
-    public static Map<String, Double> nodeCountFunctionSet = new LinkedHashMap<String, Double>();
-    /**
-     * Use strictly default node count specified in parameter file
-     */
-    public static boolean fsalps_use_only_default_node_pr = false;
-    /**
-     * When true, all layers node count is used in generating
-     * probability node selection
-     * Else only last layer node count (frequency) is converted to probabilities
-     * see layerFrequencySelection(ALPSLayers alps,EvolutionState state) in Roulette class for implementation
-     */
-    public static boolean fsalps_count_all_layers = false;
-    /**
-     * FSALPS is active
-     */
-    public static boolean fsalps_active = false;
-    /**
-     * Use FSALPS generated frequency count during mutation
-     *
-     * @deprecated
-     */
-    public static boolean fsalps_use_mutation = true;
-    /**
-     * Should frequency count be performed for every generation in the highest ALPS layer?
-     * if false, frequency count is performed at every age-gap interval
-     */
-    public static boolean fsalps_gen_freq_count = false;
-    /**
-     * by default an offspring is assigned the age of the oldest parent + 1.
-     * if this flag is set to false, then the minimum age +1 is assigned to the offspring
-     */
-    public static boolean alps_assign_max_parent_age = true;
-    /**
-     * when true, only individuals selected from breeding from current layer have their age increased
-     * else both both individuals coming from current and lower layer used as parents will have their age increased
-     */
-    public static boolean alps_age_only_current_layer = false;
-    /**
-     * when using selection pressure, individual aging isn't uniform especially when parents are selected from lower
-     * layer. When some individuals are aged faster than others, a population will contain less than expected required number
-     * ECJ by default breeds a maximum of the number of populations contained in a population.
-     */
-    public static boolean always_breed_maximum_pop = true;
-    /**
-     * hold rouletee values
-     */
-    public static Roulette roulette;
-    /**
-     * this engine seed is to ensure that all layers are started off with a different seed
-     */
-    public static int seed = 0;
+    public ALPSLayers alps;
     /**
      * aging scheme
      */
-    public static AgingScheme ageScheme;
-    private static ArrayList<Layer> alpsLayers;
+    public AgingScheme ageScheme;
+
     public Engine(String[] args, int job, ParameterDatabase parameters) {
+        /* layers are handed over once they are all set up, see below */
+        alps = new ALPSLayers(null, 0);
         setup(parameters);
 
-        alpsLayers = ageScheme.agingScheme();
+        ArrayList<Layer> alpsLayers = ageScheme.agingScheme();
 
         //add a GP to each layer
         for (Layer l : alpsLayers) {
@@ -208,8 +134,6 @@ public class Engine extends Evolve {
             if (numJobs < 1)
                 Output.initialError("The 'jobs' parameter must be >= 1 (or not exist, which defaults to 1)");
 
-            numberOfJobs = numJobs;
-
             /* load the parameter database (reusing the very first if it exists) */
             if (l.parameterDatabase == null)
                 l.parameterDatabase = loadParameterDatabase(args);
@@ -235,16 +159,20 @@ public class Engine extends Evolve {
             l.result = EvolutionState.R_NOTDONE;
 
             /* set other parameters */
-            l.setEvaluations(alpsEvaluations); //TODO not accurate
-            l.evolutionState.generation = alpsEvaluations; //TODO not accurate
+            l.setEvaluations(alps.alpsEvaluations); //TODO not accurate
+            l.evolutionState.generation = alps.alpsEvaluations; //TODO not accurate
+            l.evolutionState.alps = alps;
             l.evolutionState.startFresh(l);
         }
 
+        /* all running instances of Evolution state have access to ALPS Layers */
+        alps.layers = alpsLayers;
+
         /* determine number of evaluations */
         if (alpsLayers.get(0).evolutionState.numEvaluations == 0)
-            alpsEvaluations = alpsLayers.get(0).evolutionState.numGenerations * AgingScheme.alpsAgeLayers * generationSize;
+            alps.alpsEvaluations = alpsLayers.get(0).evolutionState.numGenerations * ageScheme.alpsAgeLayers * alps.generationSize;
         else
-            alpsEvaluations = (int) alpsLayers.get(0).evolutionState.numEvaluations;
+            alps.alpsEvaluations = (int) alpsLayers.get(0).evolutionState.numEvaluations;
 
     }
 
@@ -317,7 +245,7 @@ public class Engine extends Evolve {
         int time = (int) (System.currentTimeMillis());
         for (x = 0; x < random.length; x++) {   /*@author: anthony modified to ensure different seed for all layers  */
             seeds[x] = determineSeed(output, parameters, new Parameter(P_SEED).push("" + x),
-                    time + x, random.length * randomSeedOffset, auto) + Engine.seed;
+                    time + x, random.length * randomSeedOffset, auto);
             for (int y = 0; y < x; y++)
                 if (seeds[x] == seeds[y])
                     output.fatal(P_SEED + "." + x + " (" + seeds[x] + ") and " + P_SEED + "." + y + " (" + seeds[y] + ") ought not be the same seed.", null, null);
@@ -362,9 +290,12 @@ public class Engine extends Evolve {
             l.parameterDatabase = null;  // so we load a fresh database next time around
             //l.evolutionState.finish(l.result);
         }
-        completeGenerationalCount = 0;
-        completeEvaluationCount = 0;
-        globalEvaluations = 0;
+        if (alps.evaluationPool != null)
+            alps.evaluationPool.shutdown();
+        if (alps.breedingPool != null)
+            alps.breedingPool.shutdown();
+        if (alps.virtualEvaluation != null)
+            alps.virtualEvaluation.shutdown();
     }
 
     /**
@@ -382,6 +313,20 @@ public class Engine extends Evolve {
          * have everything fresh and clean.  It doesn't take long to load the database anyway,
          * it's usually small.
          */
+        int numberOfJobs = pd.getIntWithDefault(new Parameter("jobs"), null, 1);
+
+        /* how many of those jobs may run at the same time */
+        int parallelJobs = V_THREADS_AUTO.equalsIgnoreCase(pd.getString(base().push(PARALLEL_JOBS), null)) ?
+                Runtime.getRuntime().availableProcessors() :
+                pd.getIntWithDefault(base().push(PARALLEL_JOBS), null, 1);
+        if (parallelJobs < 1)
+            Output.initialError("\"alps." + PARALLEL_JOBS + "\" must be >= 1 or \"" + V_THREADS_AUTO + "\"");
+
+        if (parallelJobs > 1 && numberOfJobs > 1) {
+            new ParallelJobRunner(args, numberOfJobs, parallelJobs).run();
+            System.exit(0);
+        }
+
         //for(int job = currentJob ; job < numJobs; job++)
         //TODO checkpointing
         for (int job = 0; job < numberOfJobs; job++) {
@@ -390,58 +335,101 @@ public class Engine extends Evolve {
              * just create another OutOfMemoryException!  Which dies anyway and has a worthless stack
              * trace as a result.
              */
+            runJob(args, job, pd);
+        }//end jobs
+        System.exit(0);
+    }
 
-            new Engine(args, job, pd);
+    /**
+     * Sets up the layers of one job and evolves them until the last layer completes.
+     * Everything the job touches hangs off the returned ALPSLayers, so jobs may run on different threads.
+     *
+     * @param args runtime arguments
+     * @param job  job number, also used as the random seed offset and output file prefix
+     * @param pd   parameter database the job is set up from
+     * @return the finished layers of the job
+     */
+    public static ALPSLayers runJob(String[] args, int job, ParameterDatabase pd) {
+        ALPSLayers alps = new Engine(args, job, pd).alps;
 
-            /* all running instances of Evolution state have access to ALPS Layers */
-            alps = new ALPSLayers(alpsLayers, 0);
+        /* this must be called after new Engine(args,job,pd) to setup the parameters */
+        //alpsEvaluations = numGenerations * AgingScheme.alpsAgeLayers * (Engine.generationSize + 1);
 
-            /* this must be called after new Engine(args,job,pd) to setup the parameters */
-            //alpsEvaluations = numGenerations * AgingScheme.alpsAgeLayers * (Engine.generationSize + 1);
+        /*
+         * Sequential selection
+         * the big loop
+         * wrap up when the last layer completes evaluation
+         * used to be this: "Engine.globalEvaluations <= alpsEvaluations",  "Engine.completeGenerationalCount <= alpsEvaluations"
+         */
+        LayerScheduler scheduler = alps.alps_parallel_scheduler ? new LayerScheduler(alps) : null;
 
-            /*
-             * Sequential selection
-             * the big loop
-             * wrap up when the last layer completes evaluation
-             * used to be this: "Engine.globalEvaluations <= alpsEvaluations",  "Engine.completeGenerationalCount <= alpsEvaluations"
-             */
-            while (alps.layers.get(alps.layers.size() - 1).result == EvolutionState.R_NOTDONE) {
-                for (int j = alpsLayers.size() - 1; j >= 0; j--) {
+        while (alps.layers.get(alps.layers.size() - 1).result == EvolutionState.R_NOTDONE) {
+            if (scheduler != null) {
+                scheduler.evolveGeneration();
+            } else {
+                for (int j = alps.layers.size() - 1; j >= 0; j--) {
                     alps.index = j; //only modify the index
 
-                    if (alpsLayers.get(j).getIsBottomLayer()) //set initializer flag to true when bottom layer is called
-                    {
-                        if ((alpsLayers.get(j).layerGenerationalCount == 1)
-                                || (alpsLayers.get(j).evolutionState.population.subpops[0].individuals.length > 0)
-                                || alpsLayers.get(j).initializerFlag) {
-                            alpsLayers.get(j).evolutionState.run(alps, EvolutionState.C_STARTED_FRESH); //good
-                            alpsLayers.get(j).initializerFlag = false;
-                        }
-
-                        if (completeGenerationalCount > 0 && (completeGenerationalCount % alpsLayers.get(j).getMaxAge()) == 0) {
-                            alpsLayers.get(j).initializerFlag = true;
-                            alpsLayers.get(j).layerGenerationalCount = 1;
-                            //alpsLayers.get(j).evolutionState.generation = 0; //problems with counting when enabled
-                        }
-                    } else if ((alpsLayers.get(j).evolutionState.population.subpops[0].individuals.length > 0) && //remove if problematic
-                            completeGenerationalCount > alpsLayers.get(j - 1).getMaxAge()) {
-                        /*Generational worked without this condition */
-                        alpsLayers.get(j).evolutionState.run(alps, EvolutionState.C_STARTED_FRESH); //good was put here because of SteadyState -- remove if problematic
-
-                        if ((alpsLayers.get(j).layerGenerationalCount % alpsLayers.get(j).getGenerations()) == 0) {
-                            alpsLayers.get(j).layerGenerationalCount = 1;
-                            //alpsLayers.get(j).evolutionState.generation = 0; //problems with counting when enabled
-                        }
+                    if (layerIsReady(alps, j)) {
+                        alps.layers.get(j).evolutionState.run(alps, EvolutionState.C_STARTED_FRESH); //good
+                        if (alps.layers.get(j).getIsBottomLayer()) //set initializer flag to true when bottom layer is called
+                            alps.layers.get(j).initializerFlag = false;
                     }
+
+                    updateLayerCounters(alps, j);
                 }
-                completeGenerationalCount++; //commented to solve problem with stats for layer 0
-                //all layers have the same default population size
-                completeEvaluationCount += generationSize;
-            } //end big loop
+            }
+            alps.completeGenerationalCount++; //commented to solve problem with stats for layer 0
+            //all layers have the same default population size
+            alps.completeEvaluationCount += alps.generationSize;
+        } //end big loop
 
-            clearSystem(alps); // now we let it go
-        }//end jobs
-        System.exit(0);
+        clearSystem(alps); // now we let it go
+        return alps;
+    }
+
+    /**
+     * Decides whether layer j evolves in the current global generation.
+     * The bottom layer runs while it has individuals or is due for reinitialization; a higher layer runs once
+     * it has received individuals and the layer below has been running for longer than its maximum age, and the
+     * EvaluationBudget allows it.
+     *
+     * @param alps all ALPS layers
+     * @param j    layer index
+     * @return true if the layer should be evolved this global generation
+     */
+    static boolean layerIsReady(ALPSLayers alps, int j) {
+        Layer layer = alps.layers.get(j);
+        if (layer.getIsBottomLayer())
+            return (layer.layerGenerationalCount == 1)
+                    || (layer.evolutionState.population.subpops[0].individuals.length > 0)
+                    || layer.initializerFlag;
+
+        /*Generational worked without this condition */
+        return (layer.evolutionState.population.subpops[0].individuals.length > 0) && //remove if problematic
+                alps.completeGenerationalCount > alps.layers.get(j - 1).getMaxAge() &&
+                alps.budget.allows(alps, j);
+    }
+
+    /**
+     * Restarts the generational count of layer j once it has completed its generations and, for the bottom layer,
+     * flags reinitialization every getMaxAge() global generations
+     *
+     * @param alps all ALPS layers
+     * @param j    layer index
+     */
+    static void updateLayerCounters(ALPSLayers alps, int j) {
+        Layer layer = alps.layers.get(j);
+        if (layer.getIsBottomLayer()) {
+            if (alps.completeGenerationalCount > 0 && (alps.completeGenerationalCount % layer.getMaxAge()) == 0) {
+                layer.initializerFlag = true;
+                layer.layerGenerationalCount = 1;
+                //alpsLayers.get(j).evolutionState.generation = 0; //problems with counting when enabled
+            }
+        } else if ((layer.layerGenerationalCount % layer.getGenerations()) == 0) {
+            layer.layerGenerationalCount = 1;
+            //alpsLayers.get(j).evolutionState.generation = 0; //problems with counting when enabled
+        }
     }
 
     public void setup(final ParameterDatabase parameters) {
@@ -454,44 +442,74 @@ public class Engine extends Evolve {
         ageScheme.setup(parameters);
 
         try {   /* Get FSALPS frequency count strategy */
-            roulette = (Roulette)
+            alps.roulette = (Roulette)
                     (parameters.getInstanceForParameter(FSALPS.defaultBase().push(FSALPS_ROULETTE), null, Roulette.class));
-            fsalps_active = true;
+            alps.fsalps_active = true;
         } catch (ec.util.ParamClassLoadException e) {
-            fsalps_active = false; //when using normal ALPS, deactivate fsalps
+            alps.fsalps_active = false; //when using normal ALPS, deactivate fsalps
         }
 
 
-        numGenerations = parameters.getInt(new Parameter(EvolutionState.P_GENERATIONS), null);
+        alps.numGenerations = parameters.getInt(new Parameter(EvolutionState.P_GENERATIONS), null);
+        alps.config = ALPSConfig.resolve(parameters);
 
         if (!parameters.exists(base().push(AGE_ONLY_CURRENT_LAYER), null))
             System.out.println("default value for  "
-                    + "\"alps." + AGE_ONLY_CURRENT_LAYER + "\" of \"" + alps_age_only_current_layer + "\" will be used \n");
+                    + "\"alps." + AGE_ONLY_CURRENT_LAYER + "\" of \"" + alps.alps_age_only_current_layer + "\" will be used \n");
 
         if (!parameters.exists(base().push(ALWAYS_BREED_MAXIMUM_POP), null))
             System.out.println("default value for  "
-                    + "\"alps." + ALWAYS_BREED_MAXIMUM_POP + "\" of \"" + always_breed_maximum_pop + "\" will be used \n");
+                    + "\"alps." + ALWAYS_BREED_MAXIMUM_POP + "\" of \"" + alps.always_breed_maximum_pop + "\" will be used \n");
 
-        alps_age_only_current_layer =
+        alps.alps_age_only_current_layer =
                 parameters.getBoolean(base().push(AGE_ONLY_CURRENT_LAYER), null, false);
-        always_breed_maximum_pop =
+        alps.always_breed_maximum_pop =
                 parameters.getBoolean(base().push(ALWAYS_BREED_MAXIMUM_POP), null, true);
-        alps_assign_max_parent_age =
+        alps.alps_assign_max_parent_age =
                 parameters.getBoolean(base().push(ASSIGN_MAX_PARENT_AGE), null, true);
 
+        String scheduler = parameters.getStringWithDefault(base().push(SCHEDULER), null, V_SCHEDULER_SEQUENTIAL);
+        if (V_SCHEDULER_PARALLEL.equalsIgnoreCase(scheduler))
+            alps.alps_parallel_scheduler = true;
+        else if (V_SCHEDULER_SEQUENTIAL.equalsIgnoreCase(scheduler))
+            alps.alps_parallel_scheduler = false;
+        else
+            Output.initialError("\"alps." + SCHEDULER + "\" must be either \"" + V_SCHEDULER_SEQUENTIAL
+                    + "\" or \"" + V_SCHEDULER_PARALLEL + "\" but was \"" + scheduler + "\"");
+
 
-        fsalps_use_only_default_node_pr =
+        alps.fsalps_use_only_default_node_pr =
                 parameters.getBoolean(base().push(FSALPS_USE_ONLY_DEFAULT_NODE_PR_PARAM), null, false);
-        fsalps_use_mutation =
+        alps.fsalps_use_mutation =
                 parameters.getBoolean(base().push(FSALPS_USE_MUTATION_PARAM), null, true);
-        fsalps_gen_freq_count =
+        alps.fsalps_gen_freq_count =
                 parameters.getBoolean(base().push(FSALPS_GEN_FREQ_COUNT), null, false);
-        fsalps_count_all_layers =
+        alps.fsalps_count_all_layers =
                 parameters.getBoolean(base().push(FSALPS_COUNT_ALL_LAYERS), null, false);
 
-        /* p = new Parameter(K_FOLD_CROSS_VALIDATION_CHUNCK);
-         * number of chunks available when using k-fold cross validation
-         * kFoldCrossValidationSize  = parameters.getInt(p, null, 1); */
+        /* number of chunks available when using k-fold cross validation, see ColumnarDataset.rowsForLayer */
+        alps.kFoldCrossValidationSize =
+                parameters.getIntWithDefault(base().push(K_FOLD_CROSS_VALIDATION_CHUNCK), null, 1);
+        if (alps.kFoldCrossValidationSize < 1)
+            Output.initialError("\"alps." + K_FOLD_CROSS_VALIDATION_CHUNCK + "\" must be >= 1");
+
+        /* fitness cases per evaluation of every layer, see CaseSamplingProblemForm */
+        int defaultSampleSize = parameters.getIntWithDefault(base().push(CASE_SAMPLE_SIZE), null, 0);
+        int[] sampleSizes = new int[ageScheme.alpsAgeLayers];
+        boolean sampled = false;
+        for (int l = 0; l < sampleSizes.length; l++) {
+            sampleSizes[l] = parameters.getIntWithDefault(base().push(CASE_SAMPLE_SIZE).push("" + l), null, defaultSampleSize);
+            if (sampleSizes[l] < 0)
+                Output.initialError("\"alps." + CASE_SAMPLE_SIZE + "." + l + "\" must be >= 0");
+            sampled |= sampleSizes[l] > 0;
+        }
+        alps.caseSampleSizes = sampled ? sampleSizes : null;
+
+        String budget = parameters.getStringWithDefault(base().push(BUDGET_SCHEDULER), null, EvaluationBudget.V_NONE);
+        if (!EvaluationBudget.V_NONE.equalsIgnoreCase(budget) && !EvaluationBudget.V_COST.equalsIgnoreCase(budget))
+            Output.initialError("\"alps." + BUDGET_SCHEDULER + "\" must be either \"" + EvaluationBudget.V_NONE
+                    + "\" or \"" + EvaluationBudget.V_COST + "\" but was \"" + budget + "\"");
+        alps.budget = new EvaluationBudget(ageScheme.alpsAgeLayers, EvaluationBudget.V_COST.equalsIgnoreCase(budget));
 
     }
 
@@ -0,0 +1,138 @@
+package ec.alps;
+
+import ec.alps.layers.ALPSLayers;
+
+/**
+ * Evaluations actually performed by every layer and the time they took, and the evaluation-budget scheduler
+ * (alps.budget-scheduler).
+ * <p>
+ * Counting the population size of a layer after every generation counts elites, reproduced individuals and
+ * migrated clones that are not evaluated again, so runs used to stop too early and throughput could not be
+ * compared between configurations. ALPSEvaluator counts the individuals it hands to the Problem instead, and
+ * EvolutionState.finishRun records them here for the layer. In steady state, ALPSSteadyStateEvaluator and
+ * AsyncSteadyStateEvaluator count the individuals they return; any other evaluator is charged the population size
+ * of the layer and cannot be used with the cost scheduler (see EvaluationCounter).
+ * <p>
+ * With alps.budget-scheduler = cost, the run's budget of alps.number-of-evaluations is turned into a budget of
+ * evaluation time, at the average measured cost of an evaluation, and every layer gets an equal share of it. A
+ * layer above the bottom layer that has used up its share skips its generations (Engine.layerIsReady), so layers
+ * whose trees have grown expensive cannot take over the run. The bottom layer always runs, as it drives aging, and
+ * all layers run once the whole budget is spent, so that the run ends.
+ *
+ * @author Anthony Awuley
+ */
+public class EvaluationBudget {
+
+    /** */
+    public static final String V_NONE = "none";
+    /** */
+    public static final String V_COST = "cost";
+
+    /** */
+    private final long[] evaluations;
+    /** */
+    private final long[] nanos;
+    /**
+     * evaluations stopped early by racing (eval.race), included in evaluations
+     */
+    private final long[] raceStops;
+    /**
+     * evaluations of SurrogateScreen on its few cases, kept apart from the evaluations above
+     */
+    private long surrogateEvaluations = 0;
+    /**
+     * layers share the budget by measured cost
+     */
+    private final boolean byCost;
+
+    /**
+     * @param numLayers number of ALPS layers
+     * @param byCost    skip layers that used up their share of evaluation time
+     */
+    public EvaluationBudget(int numLayers, boolean byCost) {
+        this.evaluations = new long[numLayers];
+        this.nanos = new long[numLayers];
+        this.raceStops = new long[numLayers];
+        this.byCost = byCost;
+    }
+
+    /**
+     * Adds evaluations performed by layer and the time they took
+     */
+    public synchronized void record(int layer, long evaluations, long nanos) {
+        this.evaluations[layer] += evaluations;
+        this.nanos[layer] += nanos;
+    }
+
+    /**
+     * Adds evaluations of layer that racing stopped early
+     */
+    public synchronized void recordRaceStops(int layer, long stops) {
+        raceStops[layer] += stops;
+    }
+
+    /**
+     * Adds surrogate evaluations of SurrogateScreen, which do not count towards alps.number-of-evaluations
+     */
+    public synchronized void recordSurrogate(long evaluations) {
+        surrogateEvaluations += evaluations;
+    }
+
+    /**
+     * @return true if layers share the budget by measured cost
+     */
+    public boolean byCost() {
+        return byCost;
+    }
+
+    /** */
+    public synchronized long evaluations(int layer) {
+        return evaluations[layer];
+    }
+
+    /**
+     * @return measured time of one evaluation of layer, 0 until the layer has evaluated an individual
+     */
+    public synchronized double nanosPerEvaluation(int layer) {
+        return evaluations[layer] == 0 ? 0 : nanos[layer] / (double) evaluations[layer];
+    }
+
+    /**
+     * @return true if layer may evolve, i.e. it has not used up its share of the budget
+     */
+    public synchronized boolean allows(ALPSLayers alps, int layer) {
+        /* once the budget is spent, every layer has to run to notice */
+        if (!byCost || layer == 0 || alps.globalEvaluations >= alps.alpsEvaluations)
+            return true;
+
+        long totalEvaluations = 0;
+        long totalNanos = 0;
+        for (int l = 0; l < evaluations.length; l++) {
+            totalEvaluations += evaluations[l];
+            totalNanos += nanos[l];
+        }
+        if (totalEvaluations == 0)
+            return true;
+
+        double budgetNanos = alps.alpsEvaluations * (totalNanos / (double) totalEvaluations);
+        return nanos[layer] < budgetNanos / evaluations.length;
+    }
+
+    /**
+     * @return evaluations and throughput of every layer
+     */
+    public synchronized String toString() {
+        StringBuilder s = new StringBuilder("Evaluations");
+        for (int l = 0; l < evaluations.length; l++) {
+            s.append("\n  Layer ").append(l).append(": ").append(evaluations[l]);
+            if (nanos[l] > 0)
+                s.append(" (").append(String.format("%.1f", evaluations[l] * 1e9 / nanos[l])).append(" per second)");
+            if (raceStops[l] > 0)
+                s.append(", ").append(raceStops[l]).append(" stopped early by racing");
+        }
+        if (surrogateEvaluations > 0)
+            s.append("\n  Surrogate pre-screening evaluations (not counted above): ").append(surrogateEvaluations);
+        return s.toString();
+    }
+
+}
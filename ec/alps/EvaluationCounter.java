@@ -0,0 +1,25 @@
+package ec.alps;
+
+import ec.EvolutionState;
+
+/**
+ * An Evaluator that counts the individuals it actually evaluates, and the time taken, for
+ * EvolutionState.finishRun and the run's EvaluationBudget.
+ * <p>
+ * ALPSEvaluator, ALPSSteadyStateEvaluator and AsyncSteadyStateEvaluator count. With any other Evaluator a layer
+ * is charged its population size every generation, and alps.budget-scheduler = cost is refused as it has no
+ * evaluation times to share out.
+ *
+ * @author Anthony Awuley
+ */
+public interface EvaluationCounter {
+
+    /**
+     * Hands the count of evaluations since the previous call to the run's EvaluationBudget and resets it
+     *
+     * @param layer index of the layer the evaluator belongs to
+     * @return individuals evaluated since the previous call
+     */
+    int takeEvaluations(EvolutionState state, int layer);
+
+}
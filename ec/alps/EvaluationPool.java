@@ -0,0 +1,250 @@
+package ec.alps;
+
+import ec.EvolutionState;
+import ec.Individual;
+import ec.Problem;
+import ec.simple.SimpleProblemForm;
+import ec.steadystate.QueueIndividual;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Long-lived evaluation threads shared by all layers of an ALPS run.
+ * <p>
+ * ALPSEvaluator is called once per layer per global generation. Starting fresh threads and cloning the Problem
+ * for each of them on every call costs more than the evaluation itself when layers are small, so the run keeps
+ * one pool (ALPSLayers.evaluationPool) instead. Every pool thread has a fixed thread number, used to index
+ * state.random, and its own clone of every layer's Problem, made the first time the thread evaluates for that
+ * layer and reused in later generations. Problems may keep per-layer state (case sample sizes, racing
+ * thresholds, memos), so a thread never evaluates one layer with the Problem of another.
+ * <p>
+ * With alps.scheduler = parallel, evaluateBatch(...) evaluates the unevaluated individuals of all layers of a
+ * global generation as a single batch, so the threads are not left idle at every layer boundary.
+ *
+ * @author Anthony Awuley
+ */
+public class EvaluationPool {
+
+    /** */
+    private final ExecutorService executor;
+    /** */
+    private final int numThreads;
+
+    /**
+     * @param numThreads number of evaluation threads (eval.threads)
+     */
+    public EvaluationPool(int numThreads) {
+        this.numThreads = numThreads;
+        this.executor = Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+            int count = 0;
+
+            public synchronized Thread newThread(Runnable r) {
+                Thread t = new EvaluationThread(r, count++);
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * Returns the pool of the run state belongs to, creating it with eval.threads threads on first use
+     */
+    public static EvaluationPool of(EvolutionState state) {
+        synchronized (state.alps) {
+            if (state.alps.evaluationPool == null)
+                state.alps.evaluationPool = new EvaluationPool(state.evalthreads);
+            return state.alps.evaluationPool;
+        }
+    }
+
+    /**
+     * Evaluates the population of state on all pool threads and returns once every individual is evaluated
+     *
+     * @param state     the layer being evaluated
+     * @param evaluator the layer's evaluator, which hands out chunks of its population
+     */
+    public void evaluate(final EvolutionState state, final ALPSEvaluator evaluator) {
+        ArrayList<Future<?>> runs = new ArrayList<>();
+        for (int i = 0; i < numThreads; i++)
+            runs.add(executor.submit(new Runnable() {
+                public void run() {
+                    EvaluationThread t = (EvaluationThread) Thread.currentThread();
+                    evaluator.evalChunks(state, t.threadnum, t.problemFor(evaluator.p_problem));
+                }
+            }));
+
+        join(state, runs);
+    }
+
+    /**
+     * Evaluates every unevaluated individual of the given layers in one pass. The individuals are cut into
+     * chunks that never span two layers or subpopulations; idle threads claim the next chunk from a shared
+     * cursor, so a thread finishing early keeps taking work instead of waiting at a layer boundary.
+     * Fitnesses are set on the individuals in place, so nothing has to be copied back to the layers.
+     * <p>
+     * Every layer must use an ALPSEvaluator.
+     *
+     * @param states the layers to evaluate
+     */
+    public void evaluateBatch(ArrayList<EvolutionState> states) {
+        if (states.isEmpty())
+            return;
+
+        /* collect the unevaluated individuals per layer and subpopulation */
+        ArrayList<Chunk> all = new ArrayList<>();
+        int total = 0;
+        for (EvolutionState state : states)
+            for (int x = 0; x < state.population.subpops.length; x++) {
+                Individual[] inds = state.population.subpops[x].individuals;
+                Individual[] todo = new Individual[inds.length];
+                int n = 0;
+                for (Individual ind : inds)
+                    if (!ind.evaluated)
+                        todo[n++] = ind;
+                if (n > 0) {
+                    all.add(new Chunk(state, x, Arrays.copyOf(todo, n)));
+                    total += n;
+                }
+            }
+
+        /* a few chunks per thread leave room for balancing uneven evaluation costs */
+        int chunkSize = Math.max(1, total / (numThreads * 4));
+        final ArrayList<Chunk> chunks = new ArrayList<>();
+        for (Chunk c : all)
+            for (int from = 0; from < c.inds.length; from += chunkSize)
+                chunks.add(new Chunk(c.state, c.subpop,
+                        Arrays.copyOfRange(c.inds, from, Math.min(from + chunkSize, c.inds.length))));
+
+        final AtomicInteger cursor = new AtomicInteger(0);
+        ArrayList<Future<?>> runs = new ArrayList<>();
+        for (int i = 0; i < Math.min(numThreads, chunks.size()); i++)
+            runs.add(executor.submit(new Runnable() {
+                public void run() {
+                    EvaluationThread t = (EvaluationThread) Thread.currentThread();
+                    int next;
+                    while ((next = cursor.getAndIncrement()) < chunks.size()) {
+                        Chunk c = chunks.get(next);
+                        SimpleProblemForm problem = t.problemFor(c.state.evaluator.p_problem);
+                        ((Problem) problem).prepareToEvaluate(c.state, t.threadnum);
+                        ALPSEvaluator evaluator = (ALPSEvaluator) c.state.evaluator;
+                        for (Individual ind : c.inds)
+                            evaluator.evaluate(c.state, ind, c.subpop, t.threadnum, problem);
+                        ((Problem) problem).finishEvaluating(c.state, t.threadnum);
+                    }
+                }
+            }));
+
+        join(states.get(0), runs);
+
+        for (EvolutionState state : states)
+            ((ALPSEvaluator) state.evaluator).recordRaceErrors(state);
+    }
+
+    /**
+     * Evaluates a single individual on the next free pool thread without waiting for it, as done by
+     * AsyncSteadyStateEvaluator. The caller keeps using state.random[0] for breeding meanwhile, so the pool
+     * thread passes threadnum + 1 to the Problem; state.random must have eval.threads + 1 generators.
+     *
+     * @param state     the layer the individual belongs to
+     * @param evaluator the layer's evaluator, whose Problem is cloned for a pool thread that has no clone of it
+     *                  yet and which counts the time of the evaluation
+     * @param ind       the individual to evaluate
+     * @param subpop    its subpopulation
+     * @param done      receives the individual once its fitness is set
+     */
+    public Future<?> evaluateAsync(final EvolutionState state, final AsyncSteadyStateEvaluator evaluator,
+                                   final Individual ind, final int subpop, final Queue<QueueIndividual> done) {
+        return executor.submit(new Runnable() {
+            public void run() {
+                EvaluationThread t = (EvaluationThread) Thread.currentThread();
+                SimpleProblemForm problem = t.problemFor(evaluator.p_problem);
+                long began = System.nanoTime();
+                ((Problem) problem).prepareToEvaluate(state, t.threadnum + 1);
+                problem.evaluate(state, ind, subpop, t.threadnum + 1);
+                ((Problem) problem).finishEvaluating(state, t.threadnum + 1);
+                evaluator.evaluationNanos.addAndGet(System.nanoTime() - began);
+                done.add(new QueueIndividual(ind, subpop));
+            }
+        });
+    }
+
+    /**
+     * waits for all submitted runs, reporting failures through the output of state
+     */
+    private void join(EvolutionState state, ArrayList<Future<?>> runs) {
+        for (Future<?> run : runs) {
+            try {
+                run.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                state.output.fatal("Interrupted while waiting for the evaluation threads");
+            } catch (ExecutionException e) {
+                state.output.fatal("Evaluation failed: " + e.getCause());
+            }
+        }
+    }
+
+    /**
+     * stops the evaluation threads at the end of a job
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * individuals of one layer and subpopulation that are evaluated together
+     */
+    static class Chunk {
+        /** */
+        final EvolutionState state;
+        /** */
+        final int subpop;
+        /** */
+        final Individual[] inds;
+
+        Chunk(EvolutionState state, int subpop, Individual[] inds) {
+            this.state = state;
+            this.subpop = subpop;
+            this.inds = inds;
+        }
+    }
+
+    /**
+     * pool thread with a fixed thread number and the Problems it evaluates with
+     */
+    static class EvaluationThread extends Thread {
+        /** */
+        final int threadnum;
+        /**
+         * clone of every layer's Problem, keyed by that layer's evaluator.p_problem
+         */
+        final IdentityHashMap<Problem, SimpleProblemForm> problems = new IdentityHashMap<>();
+
+        EvaluationThread(Runnable r, int threadnum) {
+            super(r, "ALPS Evaluation Thread " + threadnum);
+            this.threadnum = threadnum;
+        }
+
+        /**
+         * Returns this thread's clone of prototype, cloning it on first use. Only this thread touches its map
+         */
+        SimpleProblemForm problemFor(Problem prototype) {
+            SimpleProblemForm problem = problems.get(prototype);
+            if (problem == null) {
+                problem = (SimpleProblemForm) (prototype.clone());
+                problems.put(prototype, problem);
+            }
+            return problem;
+        }
+    }
+
+}
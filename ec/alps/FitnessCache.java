@@ -0,0 +1,173 @@
+package ec.alps;
+
+import ec.EvolutionState;
+import ec.Fitness;
+import ec.Individual;
+import ec.gp.GPIndividual;
+import ec.gp.GPNode;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of GP fitnesses keyed by tree structure and fitness cases, enabled with eval.fitness-cache = n
+ * (n entries).
+ * <p>
+ * Migration clones individuals, reproduction copies them and crossover often rebuilds trees that were already
+ * evaluated. Before an individual is evaluated, ALPSEvaluator looks up its trees here: two GPIndividuals of the
+ * same subpopulation evaluated on the same case set (FixedCasesProblemForm.caseSet) are the same entry if every
+ * tree is equal under GPNode.rootedTreeEquals, hashed with GPNode.rootedTreeHashCode. On a hit the cached
+ * fitness is copied into the individual and the Problem is not called. The least recently used entry is dropped
+ * once the cache is full, so entries of case sets no longer used, e.g. of earlier GenerationalCases
+ * generations, age out.
+ * <p>
+ * The run shares one cache (ALPSLayers.fitnessCache) between its layers. Problems that do not implement
+ * FixedCasesProblemForm, or whose case set is null, are never cached.
+ *
+ * @author Anthony Awuley
+ */
+public class FitnessCache {
+
+    /** */
+    private final LinkedHashMap<TreeKey, Fitness> entries;
+    /** */
+    private final AtomicLong hits = new AtomicLong(0);
+    /** */
+    private final AtomicLong misses = new AtomicLong(0);
+
+    /**
+     * @param capacity maximum number of cached fitnesses
+     */
+    public FitnessCache(final int capacity) {
+        this.entries = new LinkedHashMap<TreeKey, Fitness>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<TreeKey, Fitness> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the cache of the run state belongs to, creating it with capacity entries on first use
+     */
+    public static FitnessCache of(EvolutionState state, int capacity) {
+        synchronized (state.alps) {
+            if (state.alps.fitnessCache == null)
+                state.alps.fitnessCache = new FitnessCache(capacity);
+            return state.alps.fitnessCache;
+        }
+    }
+
+    /**
+     * Sets the fitness of ind from the cache if an individual with the same trees was evaluated before on the
+     * same cases
+     *
+     * @param caseSet the cases ind is to be evaluated on, see FixedCasesProblemForm
+     * @return true on a hit, in which case ind is marked evaluated
+     */
+    public boolean lookup(Individual ind, int subpop, Object caseSet) {
+        if (!(ind instanceof GPIndividual) || caseSet == null)
+            return false;
+
+        Fitness cached;
+        TreeKey key = new TreeKey((GPIndividual) ind, subpop, caseSet, false);
+        synchronized (entries) {
+            cached = entries.get(key);
+        }
+        if (cached == null) {
+            misses.incrementAndGet();
+            return false;
+        }
+
+        ind.fitness = (Fitness) (cached.clone());
+        ind.evaluated = true;
+        hits.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Caches the fitness of an individual evaluated on caseSet. The trees are copied, so later changes to ind do
+     * not affect the entry
+     */
+    public void store(Individual ind, int subpop, Object caseSet) {
+        if (!(ind instanceof GPIndividual) || !ind.evaluated || caseSet == null)
+            return;
+
+        TreeKey key = new TreeKey((GPIndividual) ind, subpop, caseSet, true);
+        Fitness fitness = (Fitness) (ind.fitness.clone());
+        synchronized (entries) {
+            entries.put(key, fitness);
+        }
+    }
+
+    /** */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /** */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return hits and misses so far, as printed by the ALPS statistics
+     */
+    public String toString() {
+        long h = hits.get();
+        long m = misses.get();
+        return "Fitness Cache Hits: " + h + " Misses: " + m
+                + (h + m > 0 ? " Hit Rate: " + (100.0 * h / (h + m)) + "%" : "");
+    }
+
+    /**
+     * the trees of a GPIndividual, compared by structure, its subpopulation and the cases it is evaluated on
+     */
+    static class TreeKey {
+        /** */
+        final GPNode[] roots;
+        /** */
+        final int subpop;
+        /** */
+        final Object caseSet;
+        /** */
+        final int hash;
+
+        /**
+         * @param copy true to keep copies of the trees, false to refer to the individual's own trees
+         */
+        TreeKey(GPIndividual ind, int subpop, Object caseSet, boolean copy) {
+            this.subpop = subpop;
+            this.caseSet = caseSet;
+            this.roots = new GPNode[ind.trees.length];
+            int h = 31 * subpop + caseSet.hashCode();
+            for (int i = 0; i < roots.length; i++) {
+                GPNode root = ind.trees[i].child;
+                if (copy) {
+                    root = (GPNode) (root.clone());
+                    root.parent = null;  // do not keep the individual reachable from the cache
+                }
+                roots[i] = root;
+                h = 31 * h + root.rootedTreeHashCode();
+            }
+            this.hash = h;
+        }
+
+        public int hashCode() {
+            return hash;
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof TreeKey))
+                return false;
+            TreeKey k = (TreeKey) o;
+            if (k.hash != hash || k.subpop != subpop || k.roots.length != roots.length || !k.caseSet.equals(caseSet))
+                return false;
+            for (int i = 0; i < roots.length; i++)
+                if (!roots[i].rootedTreeEquals(k.roots[i]))
+                    return false;
+            return true;
+        }
+    }
+
+}
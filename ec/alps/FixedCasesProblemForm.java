@@ -0,0 +1,29 @@
+package ec.alps;
+
+import ec.EvolutionState;
+import ec.simple.SimpleProblemForm;
+
+/**
+ * A SimpleProblemForm that can tell which fitness cases its next evaluations use, required by the FitnessCache
+ * (eval.fitness-cache) and by racing (eval.race).
+ * <p>
+ * Both compare fitnesses computed at different times: the cache hands out a fitness computed earlier, and a
+ * racing individual is stopped on errors measured earlier. That is only sound if both
+ * were measured on the same cases. caseSet(...) returns a value identifying the cases; two evaluations whose
+ * case sets are equal (Object.equals) must give equal individuals equal fitnesses. A Problem drawing new cases
+ * for every evaluation returns null.
+ *
+ * @author Anthony Awuley
+ */
+public interface FixedCasesProblemForm extends SimpleProblemForm {
+
+    /**
+     * Called after CaseSamplingProblemForm.setCaseSampleSize(...), if the Problem samples its cases, and once
+     * at setup, where null disables racing
+     *
+     * @return the case set the following evaluations in the current generation of state use, or null if
+     * every evaluation uses other cases
+     */
+    Object caseSet(EvolutionState state);
+
+}
@@ -16,6 +16,10 @@ public class GenEvolutionState extends EvolutionState {
 
     /** */
     private static final long serialVersionUID = 1;
+    /**
+     * set by evaluateLayer() or LayerScheduler when the population was already evaluated ahead of evolve()
+     */
+    boolean evaluatedAhead = false;
 
     /**
      * At setup, startFresh(Layer) is called to setup a new layer
@@ -32,7 +36,7 @@ public class GenEvolutionState extends EvolutionState {
                 (parameters.getInstanceForParameter(p, null, Replacement.class));
         replacement.setup(this, p);
 
-        l.evolutionState.output.message("\n\nSetting up layer :" + l.getId()/* + " Global Generation # " + Engine.completeGenerationalCount*/);
+        l.evolutionState.output.message("\n\nSetting up layer :" + l.getId()/* + " Global Generation # " + alps.completeGenerationalCount*/);
         l.evolutionState.output.message("Maximum Age: " + l.getMaxAge());
         l.evolutionState.output.message("Maximum Generation: " + l.getGenerations());
 
@@ -71,7 +75,7 @@ public class GenEvolutionState extends EvolutionState {
         for (int sub = 0; sub < population.subpops.length; sub++)
             popSize += population.subpops[sub].individuals.length;
         //This is the same as population size
-        Engine.generationSize = popSize;
+        alps.generationSize = popSize;
 
         /** TODO Modify numGenerations and numEvaluations for ALPS  */
         l.numGenerations = numGenerations;
@@ -93,15 +97,15 @@ public class GenEvolutionState extends EvolutionState {
      * After setup,
      */
     public void startFresh() {
-        output.message("\n\nSetting up layer " + Engine.alps.index +
-                " Global Generation # " + Engine.completeGenerationalCount);
+        output.message("\n\nSetting up layer " + alps.index +
+                " Global Generation # " + alps.completeGenerationalCount);
 
         /*
          * only perform this action at the beginning of evolution
          * NB: statistics collection can't keep file for layer 0 only works for first round age gap generations if this is
          *     skipped (no if condition)
          */
-        if (Engine.completeGenerationalCount == 0) //was 1
+        if (alps.completeGenerationalCount == 0) //was 1
         {
             setup(this, null);  // a garbage Parameter
         }
@@ -126,18 +130,32 @@ public class GenEvolutionState extends EvolutionState {
     }
 
 
+    /**
+     * Evaluates the current population of this layer ahead of evolve(), which then skips its own
+     * evaluation step. Used by LayerScheduler for layers that cannot be part of its batched evaluation.
+     */
+    public void evaluateLayer() {
+        statistics.preEvaluationStatistics(this);
+        evaluator.evaluatePopulation(this);
+        evaluatedAhead = true;
+    }
+
+
     public int evolve() {
         if (generation > 0)
             output.message(
-                    "L" + Engine.alps.index + " "
+                    "L" + alps.index + " "
                             + "Gen: " + generation + " "
-                            + "Global Gen: # " + Engine.completeGenerationalCount);
+                            + "Global Gen: # " + alps.completeGenerationalCount);
 
         //population.subpops[0].individuals[0]
 
         // EVALUATION
-        statistics.preEvaluationStatistics(this);
-        evaluator.evaluatePopulation(this);
+        if (!evaluatedAhead) {
+            statistics.preEvaluationStatistics(this);
+            evaluator.evaluatePopulation(this);
+        }
+        evaluatedAhead = false;
         statistics.postEvaluationStatistics(this);
 
         // SHOULD WE QUIT?
@@ -154,7 +172,7 @@ public class GenEvolutionState extends EvolutionState {
 		}*/
 
         // SHOULD WE QUIT? --
-        if (Engine.globalEvaluations >= Engine.alpsEvaluations)
+        if (alps.globalEvaluations >= alps.alpsEvaluations)
             return R_FAILURE;
 
 
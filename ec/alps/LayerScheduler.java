@@ -0,0 +1,99 @@
+package ec.alps;
+
+import ec.EvolutionState;
+import ec.alps.layers.ALPSLayers;
+import ec.alps.layers.Layer;
+
+import java.util.ArrayList;
+
+/**
+ * Parallel layer scheduler for generational ALPS (alps.scheduler = parallel).
+ * <p>
+ * The sequential loop in Engine.main evolves one layer after another, so only the evaluation threads of a
+ * single layer are ever busy. LayerScheduler splits a global generation into three phases:
+ * <ol>
+ * <li>top-down, every layer that is ready is started (FSALPS roulette refresh, bottom layer reinitialization)</li>
+ * <li>the unevaluated individuals of all started layers are evaluated as one batch on the run's
+ * EvaluationPool (eval.threads threads)</li>
+ * <li>top-down, every started layer finishes evolve() (statistics, breeding) and then performs its
+ * inter-layer migration exactly as in sequential mode</li>
+ * </ol>
+ * Phase 3 is the barrier before Replacement.layerMigrations, so migrations happen in the same order as before.
+ * Because all layers are evaluated before any layer breeds, a layer selecting parents from the layer below sees
+ * fitnesses assigned in the same global generation.
+ * <p>
+ * Statistics and breeding read other layers' populations, so they are deliberately kept out of the concurrent phase.
+ * Layers whose evaluator cannot take part in a batch (not an ALPSEvaluator, or num-tests above 1) are evaluated
+ * one after another with their own evaluator instead.
+ *
+ * @author Anthony Awuley
+ */
+public class LayerScheduler {
+
+    /** */
+    private final ALPSLayers alps;
+
+    /**
+     * @param alps all ALPS layers of the current job
+     */
+    public LayerScheduler(ALPSLayers alps) {
+        this.alps = alps;
+
+        for (Layer l : alps.layers)
+            if (!(l.evolutionState instanceof GenEvolutionState))
+                l.evolutionState.output.fatal("\"alps." + Engine.SCHEDULER + " = " + Engine.V_SCHEDULER_PARALLEL
+                        + "\" requires " + GenEvolutionState.class.getName() + " but layer " + l.getId()
+                        + " uses " + l.evolutionState.getClass().getName());
+    }
+
+    /**
+     * Evolves all ready layers for one global generation
+     */
+    public void evolveGeneration() {
+        int size = alps.layers.size();
+        boolean[] ready = new boolean[size];
+
+        /* phase 1: decide which layers run and start them, top-down as in the sequential loop */
+        for (int j = size - 1; j >= 0; j--) {
+            ready[j] = Engine.layerIsReady(alps, j);
+            if (ready[j]) {
+                alps.index = j;
+                alps.layers.get(j).evolutionState.startRun(alps, EvolutionState.C_STARTED_FRESH);
+            }
+        }
+
+        /* phase 2: evaluate all started layers as one batch */
+        ArrayList<EvolutionState> batch = new ArrayList<>();
+        for (int j = size - 1; j >= 0; j--)
+            if (ready[j]) {
+                GenEvolutionState state = (GenEvolutionState) alps.layers.get(j).evolutionState;
+                if (state.evaluator instanceof ALPSEvaluator && ((ALPSEvaluator) state.evaluator).canEvaluateInBatch()) {
+                    state.statistics.preEvaluationStatistics(state);
+                    batch.add(state);
+                } else
+                    state.evaluateLayer();
+            }
+
+        if (!batch.isEmpty()) {
+            EvaluationPool.of(batch.get(0)).evaluateBatch(batch);
+            for (EvolutionState state : batch)
+                ((GenEvolutionState) state).evaluatedAhead = true;
+        }
+
+        /* phase 3: finish evolve() and migrate, top-down */
+        for (int j = size - 1; j >= 0; j--) {
+            alps.index = j; //only modify the index
+            Layer layer = alps.layers.get(j);
+
+            if (ready[j]) {
+                layer.result = layer.evolutionState.evolve();
+                if (layer.getIsBottomLayer())
+                    layer.initializerFlag = false;
+                layer.evolutionState.finishRun(alps);
+            }
+
+            Engine.updateLayerCounters(alps, j);
+        }
+    }
+
+}
@@ -0,0 +1,147 @@
+package ec.alps;
+
+import ec.EvolutionState;
+import ec.Evolve;
+import ec.Individual;
+import ec.alps.layers.ALPSLayers;
+import ec.alps.layers.Layer;
+import ec.util.Output;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs the "jobs" iterations of an ALPS experiment on a bounded thread pool (alps.parallel-jobs = n).
+ * <p>
+ * Each job loads its own parameter database and gets its own ALPSLayers run context, so jobs do not share
+ * any state. As in sequential mode, job N writes to files prefixed "job.N.alps.L." and uses N as its random
+ * seed offset. Because the per-job console output interleaves, a merged summary of all jobs is printed
+ * once every job has finished.
+ *
+ * @author Anthony Awuley
+ */
+public class ParallelJobRunner {
+
+    /** */
+    private final String[] args;
+    /** */
+    private final int numberOfJobs;
+    /** */
+    private final int parallelJobs;
+
+    /**
+     * @param args         runtime arguments
+     * @param numberOfJobs value of the "jobs" parameter
+     * @param parallelJobs maximum number of jobs running at the same time
+     */
+    public ParallelJobRunner(String[] args, int numberOfJobs, int parallelJobs) {
+        this.args = args;
+        this.numberOfJobs = numberOfJobs;
+        this.parallelJobs = Math.min(parallelJobs, numberOfJobs);
+    }
+
+    /**
+     * runs all jobs and prints the merged summary
+     */
+    public void run() {
+        Output output = Evolve.buildOutput();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelJobs, new ThreadFactory() {
+            int count = 0;
+
+            public synchronized Thread newThread(Runnable r) {
+                return new Thread(r, "ALPS Job Thread " + (count++));
+            }
+        });
+
+        ArrayList<Future<JobSummary>> jobs = new ArrayList<>();
+        for (int job = 0; job < numberOfJobs; job++) {
+            final int j = job;
+            jobs.add(executor.submit(new Callable<JobSummary>() {
+                public JobSummary call() {
+                    /* a fresh database per job, the way the sequential loop would reload it */
+                    return new JobSummary(j, Engine.runJob(args, j, Evolve.loadParameterDatabase(args)));
+                }
+            }));
+        }
+
+        ArrayList<JobSummary> summaries = new ArrayList<>();
+        for (int job = 0; job < jobs.size(); job++) {
+            try {
+                summaries.add(jobs.get(job).get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                output.fatal("Interrupted while waiting for job " + job);
+            } catch (ExecutionException e) {
+                output.fatal("Job " + job + " failed: " + e.getCause());
+            }
+        }
+        executor.shutdown();
+
+        printSummary(output, summaries);
+    }
+
+    /**
+     * prints one line per job followed by the best individual and the success rate over all jobs
+     */
+    void printSummary(Output output, ArrayList<JobSummary> summaries) {
+        output.message("\n\nSummary of " + summaries.size() + " jobs (" + parallelJobs + " in parallel)");
+
+        JobSummary best = null;
+        int successes = 0;
+        for (JobSummary s : summaries) {
+            output.message("Job " + s.job + ": "
+                    + (s.result == EvolutionState.R_SUCCESS ? "ideal found" : "no ideal found")
+                    + "\tGlobal Generations: " + s.generations
+                    + "\tEvaluations: " + s.evaluations
+                    + "\tBest Fitness: " + (s.best == null ? "-" : s.best.fitness.fitnessToStringForHumans()));
+
+            if (s.result == EvolutionState.R_SUCCESS)
+                successes++;
+            if (s.best != null && (best == null || s.best.fitness.betterThan(best.best.fitness)))
+                best = s;
+        }
+
+        output.message("Ideal found in " + successes + " of " + summaries.size() + " jobs");
+        if (best != null)
+            output.message("Best of all jobs: job " + best.job + " Fitness: " + best.best.fitness.fitnessToStringForHumans());
+    }
+
+    /**
+     * what is kept of a finished job; the job's layers are released as soon as this is built
+     */
+    static class JobSummary {
+        /** */
+        final int job;
+        /** */
+        final int result;
+        /** */
+        final int generations;
+        /** */
+        final int evaluations;
+        /**
+         * best evaluated individual over all layers, null if none was evaluated
+         */
+        final Individual best;
+
+        JobSummary(int job, ALPSLayers alps) {
+            this.job = job;
+            this.result = alps.layers.get(alps.layers.size() - 1).result;
+            this.generations = alps.completeGenerationalCount;
+            this.evaluations = alps.globalEvaluations;
+
+            Individual b = null;
+            for (Layer l : alps.layers)
+                for (int x = 0; x < l.evolutionState.population.subpops.length; x++)
+                    for (Individual ind : l.evolutionState.population.subpops[x].individuals)
+                        if (ind.evaluated && (b == null || ind.fitness.betterThan(b.fitness)))
+                            b = ind;
+            this.best = b;
+        }
+    }
+
+}
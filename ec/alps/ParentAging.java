@@ -0,0 +1,96 @@
+package ec.alps;
+
+import ec.EvolutionState;
+import ec.Individual;
+
+import java.util.ArrayList;
+
+/**
+ * Ages the parents used by the ALPS breeding pipelines.
+ * <p>
+ * A parent's age goes up by 1 in every generation in which it is used, however often it is used. The pipelines
+ * used to do this in place on the selected individuals, which live in the current layer's or the lower layer's
+ * population and are shared by all breeding threads, so breeding with breedthreads > 1 raced on age and
+ * generationCount. While ALPSBreeder breeds (between begin(...) and merge(...)) the pipelines only record here
+ * which parents they used, per breeding thread, and give their offspring the age the parent will have. The
+ * records are applied once all threads are done; as a parent is aged at most once per generation, the result
+ * does not depend on the order of the threads. Outside ALPSBreeder, e.g. in steady state breeding, parents are
+ * aged immediately as before.
+ *
+ * @author Anthony Awuley
+ */
+public class ParentAging {
+
+    /**
+     * parents used by every breeding thread, aged on merge
+     */
+    private final ArrayList<ArrayList<Individual>> aged = new ArrayList<>();
+    /**
+     * parents used by every breeding thread whose age is kept (alps.age-only-current-layer)
+     */
+    private final ArrayList<ArrayList<Individual>> kept = new ArrayList<>();
+    /**
+     * true while ALPSBreeder breeds
+     */
+    private boolean deferred = false;
+
+    /**
+     * Starts recording parents instead of aging them, for state.breedthreads threads
+     */
+    public void begin(EvolutionState state) {
+        for (int t = aged.size(); t < Math.max(1, state.breedthreads); t++) {
+            aged.add(new ArrayList<Individual>());
+            kept.add(new ArrayList<Individual>());
+        }
+        deferred = true;
+    }
+
+    /**
+     * Ages the recorded parents, thread by thread, and stops recording
+     */
+    public void merge(EvolutionState state) {
+        for (int t = 0; t < aged.size(); t++) {
+            for (Individual parent : aged.get(t))
+                if (state.generation != parent.generationCount) {
+                    parent.age++;
+                    parent.generationCount = state.generation;
+                }
+            for (Individual parent : kept.get(t))
+                parent.generationCount = state.generation;
+            aged.get(t).clear();
+            kept.get(t).clear();
+        }
+        deferred = false;
+    }
+
+    /**
+     * Uses parent in breeding thread thread
+     *
+     * @return age of parent once aged, which its offspring take
+     */
+    public double age(EvolutionState state, Individual parent, int thread) {
+        if (state.generation == parent.generationCount)
+            return parent.age;
+        if (!deferred) {
+            parent.age++;
+            parent.generationCount = state.generation;
+            return parent.age;
+        }
+        aged.get(thread).add(parent);
+        return parent.age + 1;
+    }
+
+    /**
+     * Uses parent in breeding thread thread without aging it in this generation
+     *
+     * @return age of parent
+     */
+    public double keepAge(EvolutionState state, Individual parent, int thread) {
+        if (!deferred)
+            parent.generationCount = state.generation;
+        else if (state.generation != parent.generationCount)
+            kept.get(thread).add(parent);
+        return parent.age;
+    }
+
+}
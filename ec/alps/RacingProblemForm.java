@@ -0,0 +1,28 @@
+package ec.alps;
+
+import ec.EvolutionState;
+import ec.Individual;
+import ec.simple.SimpleProblemForm;
+
+/**
+ * A SimpleProblemForm that can stop evaluating an individual early, used by ALPSEvaluator with eval.race set.
+ * <p>
+ * The Problem accumulates the error of an individual case by case (or block by block) and gives up as soon
+ * as the accumulated error exceeds threshold: the individual is then known to be worse than the individual it
+ * races against, however the remaining cases turn out. It must still leave a valid fitness, e.g. a
+ * KozaFitness whose standardized fitness is the error accumulated so far (a lower bound of the real error),
+ * and mark the individual evaluated.
+ *
+ * @author Anthony Awuley
+ */
+public interface RacingProblemForm extends SimpleProblemForm {
+
+    /**
+     * Evaluates ind like SimpleProblemForm.evaluate(...), stopping once its accumulated error exceeds threshold
+     *
+     * @param threshold standardized error beyond which evaluation may stop
+     * @return true if all fitness cases were evaluated, false if evaluation stopped early
+     */
+    boolean evaluate(EvolutionState state, Individual ind, int subpopulation, int threadnum, double threshold);
+
+}
@@ -46,7 +46,7 @@ public class SStateEvolutionState extends SteadyStateEvolutionState {
         replacement.setup(this, p);
 
         l.evolutionState.output.message("\n\nSetting up layer :" + l.getId() +
-                " Global Generation # " + Engine.completeGenerationalCount);
+                " Global Generation # " + alps.completeGenerationalCount);
         l.evolutionState.output.message("Maximum Age: " + l.getMaxAge());
         l.evolutionState.output.message("Maximum Generation: " + l.getGenerations());
 
@@ -81,7 +81,7 @@ public class SStateEvolutionState extends SteadyStateEvolutionState {
 
 
         /** Modify numGenerations and numEvaluations for ALPS  */
-        Engine.generationSize = generationSize;
+        alps.generationSize = generationSize;
 
         /**
          * EMPTY INITIAL POPULATION TO LEAVE SINGLE INDIVIDUAL - This is to prevent NullPointer Exception caused during initial inter-layer migrations
@@ -103,14 +103,14 @@ public class SStateEvolutionState extends SteadyStateEvolutionState {
      */
     public void startFresh() {
         output.message("\n\nSetting up layer 0" +
-                " Global Generation # " + Engine.completeGenerationalCount);
+                " Global Generation # " + alps.completeGenerationalCount);
 
         /**
          * only perform this action at the beginning of evolution
          * NB: statistics collection can't keep file for layer 0 only works for first round age gap generations if this is
          *     skipped (no if condition)
          */
-        if (Engine.completeGenerationalCount == 0) //was 1
+        if (alps.completeGenerationalCount == 0) //was 1
             setup(this, null);  // a garbage Parameter
 
         // POPULATION INITIALIZATION
@@ -148,7 +148,7 @@ public class SStateEvolutionState extends SteadyStateEvolutionState {
             output.fatal("Number of evaluations desired is smaller than the initial population of individuals");
 
 
-        Engine.generationSize = generationSize;
+        alps.generationSize = generationSize;
 
         // INITIALIZE CONTACTS -- done after initialization to allow
         // a hook for the user to do things in Initializer before
@@ -162,18 +162,18 @@ public class SStateEvolutionState extends SteadyStateEvolutionState {
         int result = R_NOTDONE;
 
         /* Previous implementation. replaced by Operations.expectedPopulation(...) and howManyToBreed(...)
-         * int popSize = popSizeLayer(Engine.alps.layers.get(Engine.alps.index).evolutionState);
+         * int popSize = popSizeLayer(alps.layers.get(alps.index).evolutionState);
          */
 
-        int popSize = Operations.expectedPopulation(Engine.alps.layers.get(Engine.alps.index).evolutionState);
-        howManyToBreed(Engine.alps.layers.get(Engine.alps.index).evolutionState);
+        int popSize = Operations.expectedPopulation(alps.layers.get(alps.index).evolutionState);
+        howManyToBreed(alps.layers.get(alps.index).evolutionState);
 
         //statistics.prePreBreedingExchangeStatistics(this);
         //population = exchanger.preBreedingExchangePopulation(this);
         //statistics.postPreBreedingExchangeStatistics(this);
 
         // SHOULD WE QUIT? --
-        if (Engine.globalEvaluations >= Engine.alpsEvaluations)
+        if (alps.globalEvaluations >= alps.alpsEvaluations)
             return R_FAILURE;
 
 
@@ -181,6 +181,14 @@ public class SStateEvolutionState extends SteadyStateEvolutionState {
         for (int k = 0; k < popSize; k++)
             result = steadyEvolve();
 
+        /* integrate evaluations still in flight before migration (finishRun) or a restart of the layer */
+        if (evaluator instanceof AsyncSteadyStateEvaluator)
+            while (((AsyncSteadyStateEvaluator) evaluator).drain()) {
+                int r = steadyEvolve();
+                if (r != R_NOTDONE)
+                    result = r;
+            }
+
         statistics.generationBoundaryStatistics(this);
         statistics.postEvaluationStatistics(this);
 
@@ -188,11 +196,11 @@ public class SStateEvolutionState extends SteadyStateEvolutionState {
         statistics.postPostBreedingExchangeStatistics(this);
 
         /* AT REGULAR INTERVALS, CREATE INDIVIDUALS AND ASSIGN CURRENT EVALUATION COUNT */
-        if (Engine.alps.layers.get(Engine.alps.index).initializerFlag)
-            restartIndEvaluationCount(Engine.alps.layers.get(Engine.alps.index).evolutionState, Engine.completeEvaluationCount);
+        if (alps.layers.get(alps.index).initializerFlag)
+            restartIndEvaluationCount(alps.layers.get(alps.index).evolutionState, alps.completeEvaluationCount);
 
         /* Calculate age of individuals based on current evaluation count */
-        calculateAge(Engine.alps.layers.get(Engine.alps.index).evolutionState, Engine.completeEvaluationCount);
+        calculateAge(alps.layers.get(alps.index).evolutionState, alps.completeEvaluationCount);
 
         return result;
     }
@@ -201,11 +209,11 @@ public class SStateEvolutionState extends SteadyStateEvolutionState {
     public int steadyEvolve() {
         if (generationBoundary && generation > 0) {
             output.message(
-                    "L" + Engine.alps.index + " "
+                    "L" + alps.index + " "
                             + "Generation " + generation + "\t"
                             + "Evaluations " + evaluations + "\t"
-                            + "Global Generation # " + Engine.completeGenerationalCount + "\t"
-                            + "Global Evaluation # " + Engine.completeEvaluationCount);
+                            + "Global Generation # " + alps.completeGenerationalCount + "\t"
+                            + "Global Evaluation # " + alps.completeEvaluationCount);
             //output.message("Generation " + generation +"\tEvaluations " + evaluations);
             //statistics.generationBoundaryStatistics(this);
             //statistics.postEvaluationStatistics(this);
@@ -393,7 +401,7 @@ public class SStateEvolutionState extends SteadyStateEvolutionState {
             /* Count population in each subpop
              * This is very important and must be called in evolve to keep count of
              * individuals in a layer -- this will determine if new breeding is needed*/
-            if (!Engine.alps.layers.get(Engine.alps.index).getIsBottomLayer())
+            if (!alps.layers.get(alps.index).getIsBottomLayer())
                 individualCount[x] = state.population.subpops[x].individuals.length;
 
             total += state.population.subpops[x].individuals.length;
@@ -415,7 +423,7 @@ public class SStateEvolutionState extends SteadyStateEvolutionState {
             /* Count population in each subpop
              * This is very important and must be called in evolve to keep count of
              * individuals in a layer -- this will determine if new breeding is needed*/
-            if (!Engine.alps.layers.get(Engine.alps.index).getIsBottomLayer())
+            if (!alps.layers.get(alps.index).getIsBottomLayer())
                 individualCount[x] = state.population.subpops[x].individuals.length;
 
     }
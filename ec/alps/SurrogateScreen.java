@@ -0,0 +1,179 @@
+package ec.alps;
+
+import ec.BreedingPipeline;
+import ec.EvolutionState;
+import ec.Individual;
+import ec.Population;
+import ec.Setup;
+import ec.util.Parameter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+
+/**
+ * Pre-screens freshly bred offspring with a cheap surrogate fitness before they are evaluated, used by
+ * ALPSBreeder when breed.prescreen.cases is set.
+ * <p>
+ * The surrogate is the Problem itself evaluated on a few fitness cases (CaseSamplingProblemForm). After breeding,
+ * every new offspring is scored on those cases, the worst of them are thrown away and bred again, and the
+ * replacements are scored in turn, for a number of rounds. A replacement that scores worse than the worst
+ * offspring kept in its round does not displace the offspring it was bred for unless it beats it, so no slot
+ * ends up worse than before screening, including in the last round. The offspring left are then marked
+ * unevaluated and evaluated in full as usual, so the population does not change size and the evaluator is not
+ * involved. When the fitness function is far more expensive than breeding, full evaluations are spent on fewer
+ * hopeless individuals.
+ * <p>
+ * Offspring copied from already evaluated parents (reproduction) keep their fitness and are not screened.
+ * Screening runs in the breeding thread on thread number 0. Surrogate evaluations are recorded in the run's
+ * EvaluationBudget apart from full evaluations: they do not count towards alps.number-of-evaluations.
+ *
+ * @author Anthony Awuley
+ */
+public class SurrogateScreen implements Setup {
+
+    /** */
+    private static final long serialVersionUID = 1;
+    /** */
+    public static final String P_PRESCREEN = "prescreen";
+    /**
+     * fitness cases of the surrogate, 0 (default) for no screening
+     */
+    public static final String P_CASES = "cases";
+    /**
+     * fraction of the screened offspring kept in every round (default 0.5)
+     */
+    public static final String P_KEEP = "keep";
+    /**
+     * rounds of discarding and breeding again (default 1)
+     */
+    public static final String P_ROUNDS = "rounds";
+
+    /** */
+    int cases = 0;
+    /** */
+    double keep = 0.5;
+    /** */
+    int rounds = 1;
+    /**
+     * the evaluator's Problem, cloned on first use, scoring on cases fitness cases
+     */
+    transient CaseSamplingProblemForm surrogate;
+    /**
+     * offspring thrown away and bred again, over the whole run
+     */
+    public long rebred = 0;
+    /**
+     * surrogate evaluations since the last screen(...) call
+     */
+    long scored = 0;
+
+    public void setup(final EvolutionState state, final Parameter base) {
+        cases = state.parameters.getIntWithDefault(base.push(P_CASES), null, 0);
+        if (cases < 0)
+            state.output.fatal("Prescreen cases must be >= 0", base.push(P_CASES));
+        keep = state.parameters.getDoubleWithDefault(base.push(P_KEEP), null, keep);
+        if (keep <= 0.0 || keep > 1.0)
+            state.output.fatal("Prescreen keep must be a fraction above 0.0 and at most 1.0", base.push(P_KEEP));
+        rounds = state.parameters.getIntWithDefault(base.push(P_ROUNDS), null, rounds);
+        if (rounds < 1)
+            state.output.fatal("Prescreen rounds must be >= 1", base.push(P_ROUNDS));
+    }
+
+    /**
+     * @return true if offspring are screened; the Problem is only known once the evaluator has been set up
+     */
+    public boolean isActive(EvolutionState state) {
+        if (cases == 0)
+            return false;
+        if (!(state.evaluator.p_problem instanceof CaseSamplingProblemForm)) {
+            state.output.warning("Prescreening needs a Problem implementing " + CaseSamplingProblemForm.class.getName()
+                    + "; offspring are not screened");
+            cases = 0;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Screens the offspring of newpop, bred from state.population, replacing the worst by new offspring
+     */
+    public void screen(final EvolutionState state, final Population newpop, final ALPSBreeder breeder) {
+        if (!isActive(state))
+            return;
+        if (surrogate == null)
+            surrogate = (CaseSamplingProblemForm) (state.evaluator.p_problem.clone());
+        surrogate.setCaseSampleSize(cases);
+        ((ec.Problem) surrogate).prepareToEvaluate(state, 0);
+
+        for (int sub = 0; sub < newpop.subpops.length; sub++) {
+            final Individual[] inds = newpop.subpops[sub].individuals;
+            int offspring = Math.max(0, inds.length - breeder.numElites(state, sub));
+
+            ArrayList<Integer> screened = new ArrayList<>();
+            for (int x = 0; x < offspring; x++)
+                if (score(state, inds[x], sub))
+                    screened.add(x);
+            if (screened.isEmpty())
+                continue;
+
+            BreedingPipeline pipe = (BreedingPipeline) (newpop.subpops[sub].species.pipe_prototype.clone());
+            pipe.prepareToProduce(state, sub, 0);
+            for (int round = 0; round < rounds; round++) {
+                /* best first */
+                Collections.sort(screened, new Comparator<Integer>() {
+                    public int compare(Integer a, Integer b) {
+                        if (inds[a].fitness.betterThan(inds[b].fitness))
+                            return -1;
+                        if (inds[b].fitness.betterThan(inds[a].fitness))
+                            return 1;
+                        return 0;
+                    }
+                });
+
+                int kept = (int) Math.ceil(keep * screened.size());
+                if (kept == screened.size())
+                    break;
+                Individual cutoff = inds[screened.get(kept - 1)];
+                ArrayList<Integer> next = new ArrayList<>(screened.subList(0, kept));
+                for (int k = kept; k < screened.size(); k++) {
+                    int slot = screened.get(k);
+                    Individual discarded = inds[slot];
+                    pipe.produce(1, 1, slot, sub, inds, state, 0);
+                    rebred++;
+                    if (!score(state, inds[slot], sub))
+                        continue;
+                    /* a replacement below the cutoff only stays if it beats the offspring it replaces */
+                    if (cutoff.fitness.betterThan(inds[slot].fitness) && !inds[slot].fitness.betterThan(discarded.fitness))
+                        inds[slot] = discarded;
+                    next.add(slot);
+                }
+                screened = next;
+            }
+            pipe.finishProducing(state, sub, 0);
+
+            /* the surrogate fitness is only an estimate */
+            for (int slot : screened)
+                inds[slot].evaluated = false;
+        }
+
+        ((ec.Problem) surrogate).finishEvaluating(state, 0);
+        if (state.alps != null && state.alps.budget != null)
+            state.alps.budget.recordSurrogate(scored);
+        scored = 0;
+    }
+
+    /**
+     * Gives ind its surrogate fitness, unless it already has a real one
+     *
+     * @return true if ind was scored
+     */
+    boolean score(EvolutionState state, Individual ind, int subpop) {
+        if (ind.evaluated)
+            return false;
+        surrogate.evaluate(state, ind, subpop, 0);
+        scored++;
+        return true;
+    }
+
+}
@@ -0,0 +1,172 @@
+package ec.alps;
+
+import ec.EvolutionState;
+import ec.Individual;
+import ec.Problem;
+import ec.simple.SimpleProblemForm;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Evaluation on virtual threads for eval.threads-mode = virtual.
+ * <p>
+ * Fitness functions that block on I/O (e.g. waiting for an external simulator) keep a platform thread busy
+ * doing nothing. Here every chunk of individuals is evaluated on its own virtual thread, so thousands of
+ * evaluations can be in flight without tuning eval.threads. The number of evaluations in flight is bounded by
+ * eval.virtual-in-flight: each one holds a slot, and the slot number is the thread number handed to the
+ * Problem. Every slot has its own state.random entry, which ALPSEvaluator adds at setup, and its own clone of
+ * every layer's Problem (made on first use), so the usual one-Problem-and-generator-per-thread contract still
+ * holds.
+ * <p>
+ * The run shares one VirtualEvaluation (ALPSLayers.virtualEvaluation) between its layers. Problems may keep
+ * per-layer state, so a slot never evaluates one layer with the Problem of another.
+ * Virtual threads need Java 21. The executor is looked up reflectively so the rest of ALPS still builds and
+ * runs on older JVMs, where isAvailable() is false.
+ *
+ * @author Anthony Awuley
+ */
+public class VirtualEvaluation {
+
+    /** */
+    private static final String NEW_VIRTUAL_EXECUTOR = "newVirtualThreadPerTaskExecutor";
+
+    /** */
+    private final ExecutorService executor;
+    /**
+     * slot numbers not used by an evaluation in flight
+     */
+    private final ArrayBlockingQueue<Integer> freeSlots;
+    /**
+     * clone of every layer's Problem per slot, keyed by that layer's evaluator.p_problem. A slot is used by one
+     * evaluation at a time, so its map needs no lock
+     */
+    private final ArrayList<IdentityHashMap<Problem, SimpleProblemForm>> problems;
+
+    private VirtualEvaluation(ExecutorService executor, int inFlight) {
+        this.executor = executor;
+        this.freeSlots = new ArrayBlockingQueue<>(inFlight);
+        this.problems = new ArrayList<>(inFlight);
+        for (int i = 0; i < inFlight; i++) {
+            freeSlots.add(i);
+            problems.add(new IdentityHashMap<Problem, SimpleProblemForm>());
+        }
+    }
+
+    /**
+     * @return true if this JVM supports virtual threads
+     */
+    public static boolean isAvailable() {
+        try {
+            Executors.class.getMethod(NEW_VIRTUAL_EXECUTOR);
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the virtual thread evaluation of the run state belongs to, creating it on first use
+     *
+     * @param inFlight maximum number of evaluations running at once
+     */
+    public static VirtualEvaluation of(EvolutionState state, int inFlight) {
+        synchronized (state.alps) {
+            if (state.alps.virtualEvaluation == null) {
+                try {
+                    Method m = Executors.class.getMethod(NEW_VIRTUAL_EXECUTOR);
+                    state.alps.virtualEvaluation = new VirtualEvaluation((ExecutorService) m.invoke(null), inFlight);
+                } catch (ReflectiveOperationException e) {
+                    state.output.fatal("Virtual evaluation threads are not available: " + e);
+                }
+            }
+            return state.alps.virtualEvaluation;
+        }
+    }
+
+    /**
+     * Evaluates every individual of state, chunkSize individuals per virtual thread
+     *
+     * @param state     the layer being evaluated
+     * @param evaluator the layer's evaluator, whose Problem is cloned for every slot
+     * @param chunkSize individuals evaluated by one virtual thread
+     */
+    public void evaluate(final EvolutionState state, final ALPSEvaluator evaluator, int chunkSize) {
+        ArrayList<Future<?>> runs = new ArrayList<>();
+
+        for (int x = 0; x < state.population.subpops.length; x++) {
+            final int subpop = x;
+            final Individual[] inds = state.population.subpops[x].individuals;
+            for (int from = 0; from < inds.length; from += chunkSize) {
+                final int start = from;
+                final int end = Math.min(from + chunkSize, inds.length);
+                final int slot = takeSlot(state);
+
+                runs.add(executor.submit(new Runnable() {
+                    public void run() {
+                        try {
+                            SimpleProblemForm p = problemFor(slot, evaluator.p_problem);
+                            ((Problem) p).prepareToEvaluate(state, slot);
+                            for (int i = start; i < end; i++)
+                                evaluator.evaluate(state, inds[i], subpop, slot, p);
+                            ((Problem) p).finishEvaluating(state, slot);
+                        } finally {
+                            freeSlots.add(slot);
+                        }
+                    }
+                }));
+            }
+        }
+
+        for (Future<?> run : runs) {
+            try {
+                run.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                state.output.fatal("Interrupted while waiting for virtual evaluation threads");
+            } catch (ExecutionException e) {
+                state.output.fatal("Evaluation failed: " + e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Returns the clone of prototype of slot, cloning it on first use
+     */
+    private SimpleProblemForm problemFor(int slot, Problem prototype) {
+        IdentityHashMap<Problem, SimpleProblemForm> clones = problems.get(slot);
+        SimpleProblemForm problem = clones.get(prototype);
+        if (problem == null) {
+            problem = (SimpleProblemForm) (prototype.clone());
+            clones.put(prototype, problem);
+        }
+        return problem;
+    }
+
+    /**
+     * waits until an evaluation in flight finishes if all slots are taken
+     */
+    private int takeSlot(EvolutionState state) {
+        try {
+            return freeSlots.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            state.output.fatal("Interrupted while waiting for a free evaluation slot");
+            return -1;
+        }
+    }
+
+    /**
+     * stops accepting evaluations at the end of a job
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+}
@@ -0,0 +1,323 @@
+package ec.alps.data;
+
+import ec.EvolutionState;
+import ec.alps.layers.ALPSLayers;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Fitness cases stored column by column in a binary file and memory-mapped read-only.
+ * <p>
+ * Problems are cloned once per evaluation thread and set up once per layer, so datasets held in Problem fields
+ * are copied many times over. A ColumnarDataset holds no case data on the heap: every Column is a view of the
+ * mapped file, and the pages are shared by all threads, layers and jobs that open the same file. of(...) also
+ * opens a file only once per ALPS run (ALPSLayers.datasets).
+ * <p>
+ * File layout (big-endian, as written by write(...)):<br>
+ * int magic "ALPS", int version, int rows, int columns, then per column a type byte (T_FLOAT or T_DOUBLE) and
+ * its name (DataOutput.writeUTF); then the values of each column, one column after the other, every column
+ * starting at a multiple of 8 bytes.
+ * <p>
+ * Case subsets (RowSet) are ranges of row numbers and cost no memory either: fold(...) is one of k contiguous
+ * folds, training(...) all other folds, and rowsForLayer(...) the training rows of the fold held out by a layer
+ * when alps.k-fold-cross-validation-size is above 1.
+ *
+ * @author Anthony Awuley
+ */
+public class ColumnarDataset {
+
+    /** */
+    public static final int MAGIC = 0x414C5053;
+    /** */
+    public static final int VERSION = 1;
+    /** */
+    public static final byte T_FLOAT = 0;
+    /** */
+    public static final byte T_DOUBLE = 1;
+
+    /** */
+    private final String name;
+    /** */
+    private final int rows;
+    /** */
+    private final Column[] columns;
+
+    private ColumnarDataset(String name, int rows, Column[] columns) {
+        this.name = name;
+        this.rows = rows;
+        this.columns = columns;
+    }
+
+    /**
+     * Maps a dataset file
+     *
+     * @throws IOException if the file cannot be read or is not a dataset file
+     */
+    public static ColumnarDataset open(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            if (raf.readInt() != MAGIC)
+                throw new IOException(file + " is not a columnar dataset");
+            int version = raf.readInt();
+            if (version != VERSION)
+                throw new IOException(file + " has dataset version " + version + ", expected " + VERSION);
+            int rows = raf.readInt();
+            int numColumns = raf.readInt();
+
+            byte[] types = new byte[numColumns];
+            String[] names = new String[numColumns];
+            for (int c = 0; c < numColumns; c++) {
+                types[c] = raf.readByte();
+                names[c] = raf.readUTF();
+            }
+
+            FileChannel channel = raf.getChannel();
+            Column[] columns = new Column[numColumns];
+            long offset = align(raf.getFilePointer());
+            for (int c = 0; c < numColumns; c++) {
+                long bytes = (long) rows * width(types[c]);
+                if (bytes > Integer.MAX_VALUE)
+                    throw new IOException("Column " + names[c] + " of " + file + " is larger than 2GB");
+                if (offset + bytes > channel.size())
+                    throw new IOException(file + " is truncated in column " + names[c]);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, bytes);
+                columns[c] = new Column(names[c], types[c], buffer);
+                offset = align(offset + bytes);
+            }
+            /* the mappings stay valid once the file is closed */
+            return new ColumnarDataset(file.getPath(), rows, columns);
+        }
+    }
+
+    /**
+     * Returns the dataset of the run state belongs to, mapping the file on first use. Outside an ALPS run
+     * (state.alps not set) the file is simply mapped.
+     */
+    public static ColumnarDataset of(EvolutionState state, File file) {
+        ALPSLayers alps = state.alps;
+        try {
+            if (alps == null)
+                return open(file);
+            synchronized (alps) {
+                ColumnarDataset d = alps.datasets.get(file.getPath());
+                if (d == null) {
+                    d = open(file);
+                    alps.datasets.put(file.getPath(), d);
+                }
+                return d;
+            }
+        } catch (IOException e) {
+            state.output.fatal("Could not open dataset " + file + ":\n" + e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes a dataset file, e.g. to convert cases from another format
+     *
+     * @param columns columns[c][r] is the value of column c in row r; all columns have the same length
+     * @param asFloat store the columns as float instead of double
+     */
+    public static void write(File file, String[] names, double[][] columns, boolean asFloat) throws IOException {
+        int rows = columns.length == 0 ? 0 : columns[0].length;
+        byte type = asFloat ? T_FLOAT : T_DOUBLE;
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(rows);
+            out.writeInt(columns.length);
+            for (int c = 0; c < columns.length; c++) {
+                if (columns[c].length != rows)
+                    throw new IOException("Column " + names[c] + " has " + columns[c].length + " rows, expected " + rows);
+                out.writeByte(type);
+                out.writeUTF(names[c]);
+            }
+            for (double[] column : columns) {
+                while (out.size() % 8 != 0)
+                    out.writeByte(0);
+                for (double v : column) {
+                    if (asFloat)
+                        out.writeFloat((float) v);
+                    else
+                        out.writeDouble(v);
+                }
+            }
+        }
+    }
+
+    /** */
+    public int rows() {
+        return rows;
+    }
+
+    /** */
+    public int numColumns() {
+        return columns.length;
+    }
+
+    /** */
+    public Column column(int c) {
+        return columns[c];
+    }
+
+    /**
+     * @return the column called name, or null if there is none
+     */
+    public Column column(String name) {
+        for (Column c : columns)
+            if (c.name.equals(name))
+                return c;
+        return null;
+    }
+
+    /**
+     * @return all rows
+     */
+    public RowSet all() {
+        return new RowSet(0, rows, 0, rows);
+    }
+
+    /**
+     * @return the rows of fold k of numFolds contiguous folds of (almost) equal size
+     */
+    public RowSet fold(int k, int numFolds) {
+        int from = foldStart(k, numFolds);
+        int to = foldStart(k + 1, numFolds);
+        return new RowSet(from, to, 0, to - from);
+    }
+
+    /**
+     * @return the rows of all folds except fold k
+     */
+    public RowSet training(int k, int numFolds) {
+        int from = foldStart(k, numFolds);
+        int to = foldStart(k + 1, numFolds);
+        return new RowSet(0, from, to - from, rows - (to - from));
+    }
+
+    /**
+     * Rows to evaluate the layer of state on: with alps.k-fold-cross-validation-size = k above 1, layer L leaves
+     * out fold L mod k, so that neighbouring layers train on different cases; otherwise all rows
+     */
+    public RowSet rowsForLayer(EvolutionState state) {
+        ALPSLayers alps = state.alps;
+        if (alps == null || alps.kFoldCrossValidationSize <= 1 || alps.layers == null)
+            return all();
+        for (int l = 0; l < alps.layers.size(); l++)
+            if (alps.layers.get(l).evolutionState == state)
+                return training(l % alps.kFoldCrossValidationSize, alps.kFoldCrossValidationSize);
+        return all();
+    }
+
+    /** */
+    private int foldStart(int k, int numFolds) {
+        return (int) ((long) rows * k / numFolds);
+    }
+
+    /** */
+    private static long align(long offset) {
+        return (offset + 7) & ~7L;
+    }
+
+    /** */
+    private static int width(byte type) throws IOException {
+        if (type == T_FLOAT)
+            return 4;
+        if (type == T_DOUBLE)
+            return 8;
+        throw new IOException("Unknown column type " + type);
+    }
+
+    public String toString() {
+        return name + " (" + rows + " rows, " + columns.length + " columns)";
+    }
+
+    /**
+     * a read-only view of one column of the mapped file. Reads are absolute, so a Column may be shared by threads
+     */
+    public static class Column {
+        /** */
+        public final String name;
+        /** */
+        private final DoubleBuffer doubles;
+        /** */
+        private final FloatBuffer floats;
+
+        Column(String name, byte type, MappedByteBuffer buffer) {
+            this.name = name;
+            this.doubles = type == T_DOUBLE ? buffer.asDoubleBuffer() : null;
+            this.floats = type == T_FLOAT ? buffer.asFloatBuffer() : null;
+        }
+
+        /** */
+        public double get(int row) {
+            return doubles != null ? doubles.get(row) : floats.get(row);
+        }
+
+        /**
+         * Copies the values of count rows of a RowSet, starting at its from-th row, into dst
+         */
+        public void gather(RowSet rows, int from, int count, double[] dst) {
+            for (int i = 0; i < count; i++)
+                dst[i] = get(rows.row(from + i));
+        }
+    }
+
+    /**
+     * row numbers first, first + 1, ... with the rows from skipFrom to skipFrom + skip - 1 left out
+     */
+    public static class RowSet {
+        /** */
+        private final int first;
+        /** */
+        private final int skipFrom;
+        /** */
+        private final int skip;
+        /** */
+        private final int size;
+
+        RowSet(int first, int skipFrom, int skip, int size) {
+            this.first = first;
+            this.skipFrom = skipFrom;
+            this.skip = skip;
+            this.size = size;
+        }
+
+        /** */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * @return the row number of the i-th row of this set
+         */
+        public int row(int i) {
+            int r = first + i;
+            return r < skipFrom ? r : r + skip;
+        }
+
+        public int hashCode() {
+            return 31 * (31 * (31 * first + skipFrom) + skip) + size;
+        }
+
+        /**
+         * @return true if o holds the same rows (of the same dataset, presumably)
+         */
+        public boolean equals(Object o) {
+            if (!(o instanceof RowSet))
+                return false;
+            RowSet r = (RowSet) o;
+            return first == r.first && skipFrom == r.skipFrom && skip == r.skip && size == r.size;
+        }
+    }
+
+}
@@ -0,0 +1,149 @@
+package ec.alps.data;
+
+import ec.EvolutionState;
+import ec.alps.layers.ALPSLayers;
+import ec.util.MersenneTwisterFast;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ * A set of fitness cases that is fixed for a whole global generation and shared by all layers and
+ * evaluation threads.
+ * <p>
+ * Problems that draw new random cases for every individual make fitnesses incomparable between
+ * individuals, and they call the generator inside the evaluation loop. Here the cases of global generation
+ * g (ALPSLayers.completeGenerationalCount) are generated once, by the first thread asking for them, from a
+ * generator seeded with the run's seed and g. Every later request in the same generation gets the same
+ * arrays, so individuals evaluated in one generation are evaluated on the same cases, in any layer.
+ * <p>
+ * The arrays returned by get(...) are shared and must not be modified.
+ * <p>
+ * sample(...) picks a subsample of a case set the same way, fixed per generation, for Problems that evaluate
+ * some layers on fewer cases (CaseSamplingProblemForm).
+ *
+ * @author Anthony Awuley
+ */
+public class GenerationalCases {
+
+    /**
+     * fills the case columns of one generation
+     */
+    public interface Generator {
+        /**
+         * @param random  generator to draw the cases with
+         * @param columns columns[c][i] is value c of case i; all arrays are allocated already
+         */
+        void generate(MersenneTwisterFast random, double[][] columns);
+    }
+
+    /** */
+    private final long seed;
+    /** */
+    private final int numColumns;
+    /** */
+    private final int numCases;
+    /** */
+    private final Generator generator;
+    /**
+     * cases of the most recently requested generation
+     */
+    private volatile Cases current;
+
+    /**
+     * @param seed       run seed; generation g uses a generator seeded from seed and g
+     * @param numColumns values per case
+     * @param numCases   cases per generation
+     */
+    public GenerationalCases(long seed, int numColumns, int numCases, Generator generator) {
+        this.seed = seed;
+        this.numColumns = numColumns;
+        this.numCases = numCases;
+        this.generator = generator;
+    }
+
+    /**
+     * Returns the case set named key of the run state belongs to, creating it on first use with a seed drawn
+     * from state.random[0]. Outside an ALPS run (state.alps not set) a new case set is returned.
+     */
+    public static GenerationalCases of(EvolutionState state, String key, int numColumns, int numCases,
+                                       Generator generator) {
+        ALPSLayers alps = state.alps;
+        if (alps == null)
+            return new GenerationalCases(state.random[0].nextLong(), numColumns, numCases, generator);
+        synchronized (alps) {
+            GenerationalCases c = alps.generationalCases.get(key);
+            if (c == null) {
+                c = new GenerationalCases(state.random[0].nextLong(), numColumns, numCases, generator);
+                alps.generationalCases.put(key, c);
+            }
+            return c;
+        }
+    }
+
+    /**
+     * @return the case columns of the current global generation of state
+     */
+    public double[][] get(EvolutionState state) {
+        int generation = state.alps != null ? state.alps.completeGenerationalCount : state.generation;
+
+        Cases c = current;
+        if (c != null && c.generation == generation)
+            return c.columns;
+
+        synchronized (this) {
+            c = current;
+            if (c == null || c.generation != generation) {
+                double[][] columns = new double[numColumns][numCases];
+                /* the same cases for a generation, whichever thread or layer asks first */
+                generator.generate(new MersenneTwisterFast(seed + 0x9E3779B97F4A7C15L * generation), columns);
+                c = new Cases(generation, columns);
+                current = c;
+            }
+            return c.columns;
+        }
+    }
+
+    /**
+     * Picks size of numCases fitness cases without replacement (Floyd's algorithm, so in O(size) whatever
+     * numCases is). The same seed, generation and sizes always give the same cases
+     *
+     * @return distinct case indices below numCases, in ascending order
+     */
+    public static int[] sample(long seed, int generation, int numCases, int size) {
+        MersenneTwisterFast random = new MersenneTwisterFast(seed + 0x9E3779B97F4A7C15L * generation + size);
+        HashSet<Integer> picked = new HashSet<>();
+        int[] indices = new int[size];
+        int n = 0;
+        for (int j = numCases - size; j < numCases; j++) {
+            int t = random.nextInt(j + 1);
+            if (!picked.add(t)) { // t was picked before, j cannot have been
+                t = j;
+                picked.add(t);
+            }
+            indices[n++] = t;
+        }
+        /* rows of a mapped dataset are then read front to back */
+        Arrays.sort(indices);
+        return indices;
+    }
+
+    /** */
+    public int numCases() {
+        return numCases;
+    }
+
+    /** */
+    static class Cases {
+        /** */
+        final int generation;
+        /** */
+        final double[][] columns;
+
+        Cases(int generation, double[][] columns) {
+            this.generation = generation;
+            this.columns = columns;
+        }
+    }
+
+}
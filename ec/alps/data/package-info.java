@@ -0,0 +1,6 @@
+/**
+ * Fitness case datasets shared by all evaluation threads and layers of an ALPS run
+ *
+ * @author Anthony Awuley
+ */
+package ec.alps.data;
@@ -0,0 +1,206 @@
+package ec.alps.gp;
+
+import ec.gp.GPNode;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compiles GP trees of PostfixNodes into MethodHandle chains of type (double[])double, where the argument
+ * holds the variables of one fitness case.
+ * <p>
+ * Every node becomes a handle combinator, so the whole tree is a single MethodHandle. Once a handle has
+ * been invoked often, HotSpot generates bytecode specialised for it and the JIT can inline the expression
+ * like hand-written code. That only pays off for trees evaluated many times, e.g. ALPS top-layer individuals
+ * that survive for hundreds of generations. Compiled handles are therefore cached by tree structure
+ * (GPNode.rootedTreeHashCode() and rootedTreeEquals(...)), not by root node: every evaluated individual is a
+ * fresh copy made by breeding, reproduction or migration, so a cache keyed by identity would never hit. The
+ * cache keeps its own copy of every tree and holds at most a fixed number of trees, least recently used first
+ * out.
+ * <p>
+ * The cache may be shared by all clones of a Problem.
+ *
+ * @author Anthony Awuley
+ */
+public class GPTreeCompiler {
+
+    /** */
+    private static final MethodType UNARY = MethodType.methodType(double.class, double.class);
+    /** */
+    private static final MethodType BINARY = MethodType.methodType(double.class, double.class, double.class);
+    /** */
+    private static final MethodType PROGRAM = MethodType.methodType(double.class, double[].class);
+    /** */
+    private static final MethodHandle[] OPERATIONS = new MethodHandle[PostfixNode.OP_LOG + 1];
+    /** */
+    private static final MethodHandle VARIABLE = MethodHandles.arrayElementGetter(double[].class);
+
+    static {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            OPERATIONS[PostfixNode.OP_ADD] = lookup.findStatic(GPTreeCompiler.class, "add", BINARY);
+            OPERATIONS[PostfixNode.OP_SUB] = lookup.findStatic(GPTreeCompiler.class, "sub", BINARY);
+            OPERATIONS[PostfixNode.OP_MUL] = lookup.findStatic(GPTreeCompiler.class, "mul", BINARY);
+            OPERATIONS[PostfixNode.OP_DIV] = lookup.findStatic(GPTreeCompiler.class, "div", BINARY);
+            OPERATIONS[PostfixNode.OP_SIN] = lookup.findStatic(Math.class, "sin", UNARY);
+            OPERATIONS[PostfixNode.OP_COS] = lookup.findStatic(Math.class, "cos", UNARY);
+            OPERATIONS[PostfixNode.OP_EXP] = lookup.findStatic(Math.class, "exp", UNARY);
+            OPERATIONS[PostfixNode.OP_LOG] = lookup.findStatic(GPTreeCompiler.class, "log", UNARY);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * trees kept compiled unless a capacity is given
+     */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    /**
+     * compiled trees by tree structure, in access order
+     */
+    private final Map<TreeKey, MethodHandle> compiled;
+
+    public GPTreeCompiler() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity number of compiled trees kept
+     */
+    public GPTreeCompiler(final int capacity) {
+        compiled = Collections.synchronizedMap(new LinkedHashMap<TreeKey, MethodHandle>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<TreeKey, MethodHandle> eldest) {
+                return size() > capacity;
+            }
+        });
+    }
+
+    /**
+     * Returns the compiled form of the tree below root, compiling it the first time a tree of its structure is
+     * seen
+     *
+     * @return a handle of type (double[])double, or null if a node of the tree does not implement PostfixNode
+     */
+    public MethodHandle compile(GPNode root) {
+        MethodHandle h = compiled.get(new TreeKey(root));
+        if (h == null) {
+            h = build(root);
+            if (h != null) {
+                /* the key must not change with the individual it was taken from */
+                GPNode copy = (GPNode) (root.clone());
+                copy.parent = null;
+                compiled.put(new TreeKey(copy), h);
+            }
+        }
+        return h;
+    }
+
+    /**
+     * Runs a handle returned by compile(...) on one fitness case
+     */
+    public static double invoke(MethodHandle h, double[] variables) {
+        try {
+            return (double) h.invokeExact(variables);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    /**
+     * @return number of trees currently compiled
+     */
+    public int size() {
+        return compiled.size();
+    }
+
+    /**
+     * combines the handles of the children of node with the operation of node
+     */
+    private static MethodHandle build(GPNode node) {
+        if (!(node instanceof PostfixNode))
+            return null;
+        PostfixNode p = (PostfixNode) node;
+        int op = p.postfixOpcode();
+        if (node.children.length != PostfixProgram.Compiler.arity(op))
+            return null;
+
+        MethodHandle[] children = new MethodHandle[node.children.length];
+        for (int i = 0; i < children.length; i++)
+            if ((children[i] = build(node.children[i])) == null)
+                return null;
+
+        switch (op) {
+            case PostfixNode.OP_VARIABLE:
+                return MethodHandles.insertArguments(VARIABLE, 1, p.postfixOperand());
+            case PostfixNode.OP_CONSTANT:
+                return MethodHandles.dropArguments(
+                        MethodHandles.constant(double.class, p.postfixConstant()), 0, double[].class);
+            default:
+                if (children.length == 1)
+                    return MethodHandles.filterReturnValue(children[0], OPERATIONS[op]);
+                /* (double[], double[])double, then pass the same variables to both children */
+                return MethodHandles.permuteArguments(
+                        MethodHandles.filterArguments(OPERATIONS[op], 0, children[0], children[1]), PROGRAM, 0, 0);
+        }
+    }
+
+    /**
+     * a tree compared by structure
+     */
+    static class TreeKey {
+        /** */
+        final GPNode root;
+        /** */
+        final int hash;
+
+        TreeKey(GPNode root) {
+            this.root = root;
+            this.hash = root.rootedTreeHashCode();
+        }
+
+        public int hashCode() {
+            return hash;
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof TreeKey))
+                return false;
+            TreeKey k = (TreeKey) o;
+            return hash == k.hash && root.rootedTreeEquals(k.root);
+        }
+    }
+
+    static double add(double a, double b) {
+        return a + b;
+    }
+
+    static double sub(double a, double b) {
+        return a - b;
+    }
+
+    static double mul(double a, double b) {
+        return a * b;
+    }
+
+    /**
+     * protected division, as PostfixNode.OP_DIV
+     */
+    static double div(double a, double b) {
+        return b == 0.0 ? 1.0 : a / b;
+    }
+
+    /**
+     * protected logarithm, as PostfixNode.OP_LOG
+     */
+    static double log(double a) {
+        return a == 0.0 ? 0.0 : Math.log(Math.abs(a));
+    }
+
+}
@@ -0,0 +1,59 @@
+package ec.alps.gp;
+
+/**
+ * Implemented by GPNodes that can be compiled into a PostfixProgram. A node names the operation it performs
+ * instead of performing it: function nodes return one of the arithmetic opcodes, terminals return
+ * OP_VARIABLE with the index of the variable they read or OP_CONSTANT with their value.
+ * <p>
+ * A tree can only be compiled if every node implements this interface; otherwise the Problem keeps
+ * calling GPNode.eval.
+ *
+ * @author Anthony Awuley
+ */
+public interface PostfixNode {
+
+    /**
+     * pushes variables[postfixOperand()] of the fitness case
+     */
+    int OP_VARIABLE = 0;
+    /**
+     * pushes postfixConstant()
+     */
+    int OP_CONSTANT = 1;
+    /** */
+    int OP_ADD = 2;
+    /** */
+    int OP_SUB = 3;
+    /** */
+    int OP_MUL = 4;
+    /**
+     * protected division, 1 when dividing by 0 (as Koza's %)
+     */
+    int OP_DIV = 5;
+    /** */
+    int OP_SIN = 6;
+    /** */
+    int OP_COS = 7;
+    /** */
+    int OP_EXP = 8;
+    /**
+     * protected natural logarithm of the absolute value, 0 at 0 (as Koza's rlog)
+     */
+    int OP_LOG = 9;
+
+    /**
+     * @return one of the OP_ constants
+     */
+    int postfixOpcode();
+
+    /**
+     * @return the variable index for OP_VARIABLE; ignored for other opcodes
+     */
+    int postfixOperand();
+
+    /**
+     * @return the value for OP_CONSTANT; ignored for other opcodes
+     */
+    double postfixConstant();
+
+}
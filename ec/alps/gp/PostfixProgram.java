@@ -0,0 +1,210 @@
+package ec.alps.gp;
+
+import ec.gp.GPNode;
+
+import java.util.Arrays;
+
+/**
+ * A GP tree linearised into postfix order and interpreted over all fitness cases at once.
+ * <p>
+ * GPNode.eval walks the tree recursively once per fitness case, with a virtual call per node and every
+ * node writing its result into the shared GPData. compile(...) walks the tree once instead and records an
+ * opcode per node (see PostfixNode). run(...) then executes each opcode for all fitness cases in a tight loop
+ * over a stack of double[] columns, one column entry per case, so the dispatch cost is paid once per node
+ * rather than once per node and case.
+ * <p>
+ * A program belongs to one evaluation and is not thread-safe: run(...) reuses its stack between calls.
+ *
+ * @author Anthony Awuley
+ */
+public class PostfixProgram {
+
+    /**
+     * opcodes in postfix order
+     */
+    private final int[] code;
+    /**
+     * variable index or constant pool index of every instruction
+     */
+    private final int[] operands;
+    /** */
+    private final double[] constants;
+    /**
+     * stack entries needed by the program
+     */
+    private final int maxDepth;
+    /** */
+    private double[][] stack = new double[0][];
+
+    private PostfixProgram(int[] code, int[] operands, double[] constants, int maxDepth) {
+        this.code = code;
+        this.operands = operands;
+        this.constants = constants;
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Linearises the tree below root
+     *
+     * @return the program, or null if a node of the tree does not implement PostfixNode
+     */
+    public static PostfixProgram compile(GPNode root) {
+        Compiler c = new Compiler(root.numNodes(GPNode.NODESEARCH_ALL));
+        if (!c.emit(root))
+            return null;
+        return new PostfixProgram(Arrays.copyOf(c.code, c.length), Arrays.copyOf(c.operands, c.length),
+                Arrays.copyOf(c.constants, c.numConstants), c.maxDepth);
+    }
+
+    /**
+     * Runs the program on numCases fitness cases
+     *
+     * @param variables variables[v][i] is the value of variable v in fitness case i
+     * @param numCases  number of fitness cases
+     * @return the result of every fitness case; the array is reused by the next call
+     */
+    public double[] run(double[][] variables, int numCases) {
+        if (stack.length < maxDepth || (maxDepth > 0 && stack[0].length < numCases))
+            stack = new double[maxDepth][numCases];
+
+        int sp = 0;
+        for (int pc = 0; pc < code.length; pc++) {
+            switch (code[pc]) {
+                case PostfixNode.OP_VARIABLE:
+                    System.arraycopy(variables[operands[pc]], 0, stack[sp++], 0, numCases);
+                    break;
+                case PostfixNode.OP_CONSTANT:
+                    Arrays.fill(stack[sp++], 0, numCases, constants[operands[pc]]);
+                    break;
+                default:
+                    if (Compiler.arity(code[pc]) == 2) {
+                        apply(code[pc], stack[sp - 2], stack[sp - 1], stack[sp - 2], numCases);
+                        sp--;
+                    } else
+                        apply(code[pc], stack[sp - 1], null, stack[sp - 1], numCases);
+            }
+        }
+        return stack[0];
+    }
+
+    /**
+     * Applies a function opcode to numCases values: out[i] = a[i] op b[i], or op(a[i]) for unary opcodes.
+     * out may be the same array as a
+     */
+    static void apply(int op, double[] a, double[] b, double[] out, int numCases) {
+        switch (op) {
+            case PostfixNode.OP_ADD:
+                for (int i = 0; i < numCases; i++) out[i] = a[i] + b[i];
+                break;
+            case PostfixNode.OP_SUB:
+                for (int i = 0; i < numCases; i++) out[i] = a[i] - b[i];
+                break;
+            case PostfixNode.OP_MUL:
+                for (int i = 0; i < numCases; i++) out[i] = a[i] * b[i];
+                break;
+            case PostfixNode.OP_DIV:
+                for (int i = 0; i < numCases; i++) out[i] = b[i] == 0.0 ? 1.0 : a[i] / b[i];
+                break;
+            case PostfixNode.OP_SIN:
+                for (int i = 0; i < numCases; i++) out[i] = Math.sin(a[i]);
+                break;
+            case PostfixNode.OP_COS:
+                for (int i = 0; i < numCases; i++) out[i] = Math.cos(a[i]);
+                break;
+            case PostfixNode.OP_EXP:
+                for (int i = 0; i < numCases; i++) out[i] = Math.exp(a[i]);
+                break;
+            case PostfixNode.OP_LOG:
+                for (int i = 0; i < numCases; i++) out[i] = a[i] == 0.0 ? 0.0 : Math.log(Math.abs(a[i]));
+                break;
+            default:
+                throw new IllegalStateException("Unknown postfix opcode " + op);
+        }
+    }
+
+    /**
+     * @return number of instructions, i.e. nodes of the compiled tree
+     */
+    public int length() {
+        return code.length;
+    }
+
+    /**
+     * postorder walk that fills the instruction arrays
+     */
+    static class Compiler {
+        /** */
+        final int[] code;
+        /** */
+        final int[] operands;
+        /** */
+        final double[] constants;
+        /** */
+        int length = 0;
+        /** */
+        int numConstants = 0;
+        /** */
+        int depth = 0;
+        /** */
+        int maxDepth = 0;
+
+        Compiler(int numNodes) {
+            code = new int[numNodes];
+            operands = new int[numNodes];
+            constants = new double[numNodes];
+        }
+
+        /**
+         * @return false if node or one of its descendants cannot be compiled
+         */
+        boolean emit(GPNode node) {
+            if (!(node instanceof PostfixNode))
+                return false;
+            PostfixNode p = (PostfixNode) node;
+            int op = p.postfixOpcode();
+            if (node.children.length != arity(op))
+                return false;
+
+            for (GPNode child : node.children)
+                if (!emit(child))
+                    return false;
+
+            if (op == PostfixNode.OP_VARIABLE)
+                operands[length] = p.postfixOperand();
+            else if (op == PostfixNode.OP_CONSTANT) {
+                constants[numConstants] = p.postfixConstant();
+                operands[length] = numConstants++;
+            }
+            code[length++] = op;
+
+            /* children popped, one result pushed */
+            depth += 1 - node.children.length;
+            maxDepth = Math.max(maxDepth, depth);
+            return true;
+        }
+
+        /**
+         * @return children expected by an opcode, -1 if the opcode is unknown
+         */
+        static int arity(int op) {
+            switch (op) {
+                case PostfixNode.OP_VARIABLE:
+                case PostfixNode.OP_CONSTANT:
+                    return 0;
+                case PostfixNode.OP_SIN:
+                case PostfixNode.OP_COS:
+                case PostfixNode.OP_EXP:
+                case PostfixNode.OP_LOG:
+                    return 1;
+                case PostfixNode.OP_ADD:
+                case PostfixNode.OP_SUB:
+                case PostfixNode.OP_MUL:
+                case PostfixNode.OP_DIV:
+                    return 2;
+                default:
+                    return -1;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,429 @@
+package ec.alps.gp;
+
+import ec.EvolutionState;
+import ec.Individual;
+import ec.alps.CaseSamplingProblemForm;
+import ec.alps.FixedCasesProblemForm;
+import ec.alps.RacingProblemForm;
+import ec.alps.data.ColumnarDataset;
+import ec.alps.data.GenerationalCases;
+import ec.gp.GPIndividual;
+import ec.gp.GPNode;
+import ec.gp.GPProblem;
+import ec.gp.koza.KozaFitness;
+import ec.util.MersenneTwisterFast;
+import ec.util.Parameter;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Arrays;
+
+/**
+ * Symbolic regression on a KozaFitness, with the ALPS evaluation options shared by the regression tutorials.
+ * <p>
+ * By default an individual is evaluated as in ECJ's tutorials: num-cases random fitness cases are drawn and the
+ * tree is walked once per case by evalCase(...). The options below replace either where the cases come from
+ * (a ColumnarDataset, GenerationalCases, a subsample for alps.case-sample-size) or how the tree is run over
+ * them (GPTreeCompiler, a batched evalBatch(...), a PostfixProgram, SubtreeMemo). Trees compiled, run as postfix
+ * programs or memoized must consist of PostfixNodes; otherwise they fall back to the next way of running them.
+ * <p>
+ * A subclass names its variables, gives the function to be found and runs a tree on one case (and optionally
+ * on a batch of cases) through its own GPData and terminals. The variables of a case are passed around in the
+ * order of variableNames(), which is also the PostfixNode.postfixOperand() of the terminal reading them; the
+ * expected result follows as the last column.
+ * <p>
+ * Only evaluations on a dataset or on fixed cases have a case set (FixedCasesProblemForm); the default random
+ * cases are drawn anew for every evaluation, so they can neither be cached nor raced.
+ * <p>
+ * Parameters:<br>
+ * <i>base</i>.num-cases: random fitness cases per evaluation (default 10)<br>
+ * <i>base</i>.compile: run trees compiled into MethodHandles by a GPTreeCompiler (default false)<br>
+ * <i>base</i>.batch: run all fitness cases in one traversal with evalBatch(...) (default false)<br>
+ * <i>base</i>.postfix: run trees as PostfixPrograms (default false)<br>
+ * <i>base</i>.dataset: ColumnarDataset file with a column per variable and a target column; replaces the random
+ * cases<br>
+ * <i>base</i>.fixed-cases: evaluate every individual of a global generation on the same cases (default false)<br>
+ * <i>base</i>.sample-size: with fixed-cases, cases per generation (default num-cases)<br>
+ * <i>base</i>.memo-budget: with fixed-cases, megabytes of subtree outputs memoized per evaluation thread
+ * (default 0, off)
+ *
+ * @author Anthony Awuley
+ */
+public abstract class RegressionProblem extends GPProblem
+        implements RacingProblemForm, CaseSamplingProblemForm, FixedCasesProblemForm {
+
+    /** */
+    private static final long serialVersionUID = 1;
+    /** */
+    public static final String P_NUM_CASES = "num-cases";
+    /** */
+    public static final String P_COMPILE = "compile";
+    /** */
+    public static final String P_BATCH = "batch";
+    /** */
+    public static final String P_POSTFIX = "postfix";
+    /** */
+    public static final String P_DATASET = "dataset";
+    /** */
+    public static final String P_FIXED_CASES = "fixed-cases";
+    /** */
+    public static final String P_SAMPLE_SIZE = "sample-size";
+    /** */
+    public static final String P_MEMO_BUDGET = "memo-budget";
+    /**
+     * name of the dataset column holding the expected results
+     */
+    public static final String TARGET = "target";
+    /**
+     * random fitness cases per evaluation unless num-cases is set
+     */
+    public static final int NUM_CASES = 10;
+    /**
+     * fitness cases read from the dataset and evaluated at once
+     */
+    public static final int BLOCK_SIZE = 4096;
+    /**
+     * when racing, the cases are evaluated in about this many blocks, so that evaluation can stop early
+     */
+    public static final int RACE_BLOCKS = 10;
+    /**
+     * error of a case at most this is a hit
+     */
+    public static final double HIT_LEVEL = 0.01;
+
+    /** */
+    public int numCases = NUM_CASES;
+    /** */
+    public boolean compile;
+    /** */
+    public boolean batch;
+    /** */
+    public boolean postfix;
+    /**
+     * number of variables, and column of the expected result in a case set
+     */
+    protected int numVariables;
+    /**
+     * shared by all clones of this Problem
+     */
+    transient GPTreeCompiler compiler;
+    /**
+     * mapped once per run and shared by all clones of this Problem, null when drawing random cases
+     */
+    ColumnarDataset dataset;
+    /**
+     * dataset column of every variable
+     */
+    ColumnarDataset.Column[] columns;
+    /** */
+    ColumnarDataset.Column targetColumn;
+    /**
+     * case set of the current generation shared by all layers, null unless fixed-cases is set
+     */
+    GenerationalCases fixedCases;
+    /** */
+    long memoBudget = 0;
+    /**
+     * subtree outputs of this evaluation thread, created on first use
+     */
+    transient SubtreeMemo memo;
+    /**
+     * fitness cases of the following evaluations, set by ALPSEvaluator with alps.case-sample-size; 0 for all
+     */
+    int caseSampleSize = 0;
+    /**
+     * seed of the subsamples drawn by sampleCases(...)
+     */
+    long sampleSeed;
+    /**
+     * subsample of the current generation: picked case indices and, for fixed cases, the picked cases
+     */
+    transient int[] sampleIndices;
+    transient int sampleGeneration;
+    transient int sampleOf;
+    transient double[][] sample;
+    transient double[][] sampleSource;
+
+    /**
+     * @return names of the variables, in the order of their index; also the dataset columns read
+     */
+    protected abstract String[] variableNames();
+
+    /**
+     * @param point the variables of a fitness case
+     * @return the value of the function to be found
+     */
+    protected abstract double target(double[] point);
+
+    /**
+     * Runs the tree of ind on one fitness case
+     *
+     * @param point the variables of the case
+     * @return the result of the tree
+     */
+    protected abstract double evalCase(EvolutionState state, int threadnum, GPIndividual ind, double[] point);
+
+    /**
+     * Runs the tree of ind on numCases fitness cases in one traversal, used with batch set. Problems whose GPData
+     * cannot hold a batch leave this as it is
+     *
+     * @param variables variables[v][i] is the value of variable v in case i
+     * @return the result of every case; the array may be reused by the next call
+     */
+    protected double[] evalBatch(EvolutionState state, int threadnum, GPIndividual ind, double[][] variables,
+                                 int numCases) {
+        state.output.fatal(getClass().getName() + " cannot evaluate fitness cases in batches; do not set "
+                + P_BATCH);
+        return null;
+    }
+
+    public void setup(final EvolutionState state, final Parameter base) {
+        super.setup(state, base);
+
+        final String[] names = variableNames();
+        numVariables = names.length;
+
+        numCases = state.parameters.getIntWithDefault(base.push(P_NUM_CASES), null, NUM_CASES);
+        if (numCases < 1)
+            state.output.fatal("Number of fitness cases must be >= 1", base.push(P_NUM_CASES));
+
+        compile = state.parameters.getBoolean(base.push(P_COMPILE), null, false);
+        if (compile)
+            compiler = new GPTreeCompiler();
+        batch = state.parameters.getBoolean(base.push(P_BATCH), null, false);
+        postfix = state.parameters.getBoolean(base.push(P_POSTFIX), null, false);
+
+        if (state.parameters.exists(base.push(P_DATASET), null)) {
+            dataset = ColumnarDataset.of(state, state.parameters.getFile(base.push(P_DATASET), null));
+            columns = new ColumnarDataset.Column[numVariables];
+            for (int v = 0; v < numVariables; v++)
+                if ((columns[v] = dataset.column(names[v])) == null)
+                    state.output.error("Dataset " + dataset + " has no column " + names[v], base.push(P_DATASET));
+            if ((targetColumn = dataset.column(TARGET)) == null)
+                state.output.error("Dataset " + dataset + " has no column " + TARGET, base.push(P_DATASET));
+            state.output.exitIfErrors();
+        }
+
+        if (state.parameters.getBoolean(base.push(P_FIXED_CASES), null, false)) {
+            int sampleSize = state.parameters.getIntWithDefault(base.push(P_SAMPLE_SIZE), null, numCases);
+            if (sampleSize < 1)
+                state.output.fatal("Sample size must be >= 1", base.push(P_SAMPLE_SIZE));
+
+            final ColumnarDataset.Column[] xs = columns;
+            final ColumnarDataset.Column targets = targetColumn;
+            final int rows = dataset == null ? 0 : dataset.rows();
+            final int nv = numVariables;
+            fixedCases = GenerationalCases.of(state, base.toString(), nv + 1, sampleSize, new GenerationalCases.Generator() {
+                public void generate(MersenneTwisterFast random, double[][] cases) {
+                    double[] point = new double[nv];
+                    for (int i = 0; i < cases[nv].length; i++) {
+                        if (xs == null) {
+                            for (int v = 0; v < nv; v++)
+                                cases[v][i] = point[v] = random.nextDouble();
+                            cases[nv][i] = target(point);
+                        } else { // sample rows of the dataset, with replacement
+                            int row = random.nextInt(rows);
+                            for (int v = 0; v < nv; v++)
+                                cases[v][i] = xs[v].get(row);
+                            cases[nv][i] = targets.get(row);
+                        }
+                    }
+                }
+            });
+        }
+
+        memoBudget = state.parameters.getLongWithDefault(base.push(P_MEMO_BUDGET), null, 0) * 1024 * 1024;
+        if (memoBudget < 0)
+            state.output.fatal("Memo budget must be >= 0", base.push(P_MEMO_BUDGET));
+        else if (memoBudget > 0 && fixedCases == null) {
+            state.output.warning("Subtree outputs can only be memoized on fixed cases; memo disabled", base.push(P_MEMO_BUDGET));
+            memoBudget = 0;
+        }
+
+        /* only drawn when sampling, so runs without it keep their random numbers */
+        if (state.alps != null && state.alps.caseSampleSizes != null)
+            sampleSeed = state.random[0].nextLong();
+    }
+
+    public Object clone() {
+        RegressionProblem prob = (RegressionProblem) (super.clone());
+        prob.memo = null;  // one per evaluation thread
+        return prob;
+    }
+
+    public void setCaseSampleSize(int size) {
+        caseSampleSize = size;
+    }
+
+    /**
+     * The case set is the generation of the fixed cases, or the dataset rows of the layer; with a subsample, also
+     * the generation, size and seed it is picked with
+     */
+    public Object caseSet(final EvolutionState state) {
+        if (fixedCases == null && dataset == null)
+            return null;
+        int generation = state.alps != null ? state.alps.completeGenerationalCount : state.generation;
+        return Arrays.asList(
+                fixedCases != null || caseSampleSize > 0 ? generation : -1,
+                fixedCases != null ? null : dataset.rowsForLayer(state),
+                caseSampleSize,
+                caseSampleSize > 0 ? sampleSeed : 0L);
+    }
+
+    public void evaluate(final EvolutionState state, final Individual ind, final int subpopulation, final int threadnum) {
+        evaluate(state, ind, subpopulation, threadnum, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Evaluates the cases block by block and stops after the first block that takes the error above threshold;
+     * the standardized fitness is then the error of the blocks evaluated so far. With a finite threshold the
+     * blocks hold about 1/RACE_BLOCKS of the cases, down to a single case
+     */
+    public boolean evaluate(final EvolutionState state, final Individual ind, final int subpopulation,
+                            final int threadnum, final double threshold) {
+        boolean complete = true;
+        if (!ind.evaluated)  // don't bother reevaluating
+        {
+            GPNode root = ((GPIndividual) ind).trees[0].child;
+            double[][] cases = fixedCases == null ? null : fixedCases.get(state);
+            ColumnarDataset.RowSet rows = cases == null && dataset != null ? dataset.rowsForLayer(state) : null;
+            int total = cases != null ? cases[numVariables].length : rows != null ? rows.size() : numCases;
+            /* a layer evaluated on a subsample; the error is scaled up to estimate the error on all cases */
+            double scale = 1.0;
+            if (caseSampleSize > 0 && caseSampleSize < total) {
+                if (cases != null || rows != null) {
+                    cases = sampleCases(state, cases, rows, total);
+                    rows = null;
+                }
+                scale = (double) total / caseSampleSize;
+                total = caseSampleSize;
+            }
+            /* subtrees shared with individuals evaluated before are not evaluated again */
+            double[] memoResults = null;
+            if (memoBudget > 0 && cases != null) {
+                if (memo == null)
+                    memo = new SubtreeMemo(memoBudget);
+                memoResults = memo.run(root, cases, total);
+            }
+            /* compiled only if the memo leaves the tree to run(...) */
+            MethodHandle compiled = null;
+            PostfixProgram program = null;
+            if (memoResults == null && compile) {
+                if (compiler == null) // restored from a checkpoint
+                    compiler = new GPTreeCompiler();
+                compiled = compiler.compile(root);
+            }
+            if (memoResults == null && compiled == null && !batch && postfix)
+                program = PostfixProgram.compile(root);
+
+            int blockSize = memoResults != null ? total
+                    : Math.min(BLOCK_SIZE, threshold < Double.POSITIVE_INFINITY ? Math.max(1, total / RACE_BLOCKS) : total);
+            double[][] variables = new double[numVariables][blockSize];
+            double[] expected = new double[blockSize];
+            double[] point = new double[numVariables];
+
+            int hits = 0;
+            double sum = 0.0;
+            double result;
+            for (int from = 0; from < total; from += blockSize) {
+                int n = Math.min(blockSize, total - from);
+                if (cases != null) { // the same cases for every individual of this generation
+                    for (int v = 0; v < numVariables; v++)
+                        System.arraycopy(cases[v], from, variables[v], 0, n);
+                    System.arraycopy(cases[numVariables], from, expected, 0, n);
+                } else if (rows == null) {
+                    /* draw the fitness cases first, in the same order as when evaluating case by case */
+                    for (int y = 0; y < n; y++) {
+                        for (int v = 0; v < numVariables; v++)
+                            variables[v][y] = point[v] = state.random[threadnum].nextDouble();
+                        expected[y] = target(point);
+                    }
+                } else {
+                    for (int v = 0; v < numVariables; v++)
+                        columns[v].gather(rows, from, n, variables[v]);
+                    targetColumn.gather(rows, from, n, expected);
+                }
+
+                double[] results = memoResults != null ? memoResults
+                        : run(state, (GPIndividual) ind, threadnum, compiled, program, variables, n);
+                for (int y = 0; y < n; y++) {
+                    result = Math.abs(expected[y] - results[y]);
+                    if (result <= HIT_LEVEL) hits++;
+                    sum += result;
+                }
+
+                if (sum * scale > threshold && from + n < total) { // worse than what it races against, whatever is left
+                    complete = false;
+                    break;
+                }
+            }
+
+            // the fitness better be KozaFitness!
+            KozaFitness f = ((KozaFitness) ind.fitness);
+            f.setStandardizedFitness(state, sum * scale);
+            f.hits = hits;
+            ind.evaluated = true;
+        }
+        return complete;
+    }
+
+    /**
+     * Picks caseSampleSize of the numCases cases, either of the fixed cases or of the dataset rows. The pick is
+     * the same for every individual evaluated on as many cases in a global generation, and the picked fixed cases
+     * are kept, so subtree outputs memoized on them stay valid for the whole generation
+     *
+     * @return a column per variable and the target column of the picked cases
+     */
+    double[][] sampleCases(final EvolutionState state, double[][] cases, ColumnarDataset.RowSet rows, int numCases) {
+        int generation = state.alps != null ? state.alps.completeGenerationalCount : state.generation;
+        if (sampleIndices == null || sampleGeneration != generation || sampleOf != numCases
+                || sampleIndices.length != caseSampleSize) {
+            sampleIndices = GenerationalCases.sample(sampleSeed, generation, numCases, caseSampleSize);
+            sampleGeneration = generation;
+            sampleOf = numCases;
+            sampleSource = null;
+        }
+        if (cases != null && cases == sampleSource)
+            return sample;
+
+        double[][] picked = new double[numVariables + 1][caseSampleSize];
+        for (int i = 0; i < caseSampleSize; i++) {
+            int c = sampleIndices[i];
+            if (cases != null) {
+                for (int v = 0; v <= numVariables; v++)
+                    picked[v][i] = cases[v][c];
+            } else {
+                int row = rows.row(c);
+                for (int v = 0; v < numVariables; v++)
+                    picked[v][i] = columns[v].get(row);
+                picked[numVariables][i] = targetColumn.get(row);
+            }
+        }
+        sample = picked;
+        sampleSource = cases;
+        return picked;
+    }
+
+    /**
+     * Runs the tree of ind on numCases fitness cases: compiled if possible, otherwise batched, as a postfix
+     * program, or case by case with evalCase(...)
+     *
+     * @return the result of every case; the array may be reused by the next call
+     */
+    double[] run(final EvolutionState state, GPIndividual ind, int threadnum, MethodHandle compiled,
+                 PostfixProgram program, double[][] variables, int numCases) {
+        if (batch && compiled == null)
+            return evalBatch(state, threadnum, ind, variables, numCases);
+        if (program != null)
+            return program.run(variables, numCases);
+
+        double[] results = new double[numCases];
+        double[] point = new double[numVariables];
+        for (int y = 0; y < numCases; y++) {
+            for (int v = 0; v < numVariables; v++)
+                point[v] = variables[v][y];
+            results[y] = compiled != null ? GPTreeCompiler.invoke(compiled, point)
+                    : evalCase(state, threadnum, ind, point);
+        }
+        return results;
+    }
+}
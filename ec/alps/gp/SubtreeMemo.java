@@ -0,0 +1,235 @@
+package ec.alps.gp;
+
+import ec.gp.GPNode;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Memoizes the outputs of subtrees of PostfixNodes over a fixed set of fitness cases.
+ * <p>
+ * Crossover and mutation copy most of a parent's tree into the child, but GPNode.cloneReplacing(...) copies
+ * every node, so the unchanged subtrees cannot be recognised by identity. Instead every subtree is given a
+ * structural id: two nodes get the same id if they are equal under GPNode.nodeEquals and their children have
+ * the same ids. Computing the ids of a tree is a single bottom-up pass with one hash lookup per node. The
+ * outputs of a subtree, one value per fitness case, are then cached by id. Evaluation walks top-down and stops
+ * at the first subtree whose outputs are cached, so a child of an already evaluated parent only recomputes the
+ * path from the replaced subtree to the root.
+ * <p>
+ * Outputs are only valid for one set of cases: run(...) drops everything when it is given other case arrays,
+ * e.g. those of the next GenerationalCases generation. Cached outputs are kept within a budget of bytes,
+ * least recently used first out. A memo is not thread-safe; every evaluation thread keeps its own.
+ *
+ * @author Anthony Awuley
+ */
+public class SubtreeMemo {
+
+    /**
+     * structural ids by node and child ids
+     */
+    private final HashMap<NodeKey, Integer> ids = new HashMap<>();
+    /**
+     * outputs of function nodes by structural id, in access order
+     */
+    private final LinkedHashMap<Integer, double[]> outputs = new LinkedHashMap<>(16, 0.75f, true);
+    /**
+     * maximum number of cached doubles
+     */
+    private final long budget;
+    /** */
+    private long used = 0;
+    /**
+     * the case arrays the cached outputs belong to
+     */
+    private double[][] cases = null;
+    /** */
+    private long hits = 0;
+    /** */
+    private long misses = 0;
+
+    /** per-evaluation scratch, indexed by preorder position */
+    private int[] idOf = new int[64];
+    /** */
+    private int[] sizeOf = new int[64];
+    /** */
+    private double[][] variables;
+    /** */
+    private int numCases;
+
+    /**
+     * @param budgetBytes memory allowed for cached outputs
+     */
+    public SubtreeMemo(long budgetBytes) {
+        this.budget = budgetBytes / 8;
+    }
+
+    /**
+     * Evaluates the tree below root on numCases fitness cases
+     *
+     * @param variables variables[v][i] is the value of variable v in fitness case i. These arrays identify the case
+     *                  set and must not change while they are used
+     * @return the output of every case, or null if a node of the tree does not implement PostfixNode.
+     * The array may be cached and must not be modified
+     */
+    public double[] run(GPNode root, double[][] variables, int numCases) {
+        if (variables != cases || numCases != this.numCases) {
+            clear();
+            cases = variables;
+            this.numCases = numCases;
+        }
+        /* ids of trees that left the population are never dropped otherwise */
+        if (ids.size() > Math.max(1024, 8 * budget / Math.max(1, numCases)))
+            clear();
+        this.variables = variables;
+
+        int size = root.numNodes(GPNode.NODESEARCH_ALL);
+        if (idOf.length < size) {
+            idOf = new int[size];
+            sizeOf = new int[size];
+        }
+        if (intern(root, new int[1]) < 0)
+            return null;
+        return eval(root, 0);
+    }
+
+    /**
+     * assigns structural ids bottom-up, in preorder positions
+     *
+     * @return the id of node, -1 if the subtree cannot be evaluated
+     */
+    private int intern(GPNode node, int[] position) {
+        if (!(node instanceof PostfixNode)
+                || node.children.length != PostfixProgram.Compiler.arity(((PostfixNode) node).postfixOpcode()))
+            return -1;
+
+        int my = position[0]++;
+        int[] childIds = new int[node.children.length];
+        for (int i = 0; i < childIds.length; i++)
+            if ((childIds[i] = intern(node.children[i], position)) < 0)
+                return -1;
+
+        NodeKey key = new NodeKey(node, childIds);
+        Integer id = ids.get(key);
+        if (id == null) {
+            id = ids.size();
+            ids.put(key.detach(), id);
+        }
+        idOf[my] = id;
+        sizeOf[my] = position[0] - my;
+        return id;
+    }
+
+    /**
+     * evaluates the subtree at preorder position my, stopping at cached subtrees
+     */
+    private double[] eval(GPNode node, int my) {
+        PostfixNode p = (PostfixNode) node;
+        int op = p.postfixOpcode();
+        if (op == PostfixNode.OP_VARIABLE)
+            return variables[p.postfixOperand()];
+        if (op == PostfixNode.OP_CONSTANT) {
+            double[] c = new double[numCases];
+            Arrays.fill(c, p.postfixConstant());
+            return c;
+        }
+
+        double[] out = outputs.get(idOf[my]);
+        if (out != null) {
+            hits++;
+            return out;
+        }
+        misses++;
+
+        out = new double[numCases];
+        double[] a = eval(node.children[0], my + 1);
+        double[] b = node.children.length > 1 ? eval(node.children[1], my + 1 + sizeOf[my + 1]) : null;
+        PostfixProgram.apply(op, a, b, out, numCases);
+        store(idOf[my], out);
+        return out;
+    }
+
+    /**
+     * caches out, dropping the least recently used outputs beyond the budget
+     */
+    private void store(int id, double[] out) {
+        if (out.length > budget)
+            return;
+        outputs.put(id, out);
+        used += out.length;
+        Iterator<Map.Entry<Integer, double[]>> i = outputs.entrySet().iterator();
+        while (used > budget && i.hasNext()) {
+            used -= i.next().getValue().length;
+            i.remove();
+        }
+    }
+
+    /**
+     * forgets all ids and outputs
+     */
+    public void clear() {
+        ids.clear();
+        outputs.clear();
+        used = 0;
+    }
+
+    /**
+     * @return subtrees whose outputs were reused
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return function nodes whose outputs were computed
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * a node and the structural ids of its children
+     */
+    static class NodeKey {
+        /** */
+        GPNode node;
+        /** */
+        final int[] childIds;
+        /** */
+        final int hash;
+
+        NodeKey(GPNode node, int[] childIds) {
+            this.node = node;
+            this.childIds = childIds;
+            this.hash = 31 * node.nodeHashCode() + Arrays.hashCode(childIds);
+        }
+
+        /**
+         * replaces the node by a copy without parent and children, so that the key does not keep the
+         * individual reachable. nodeEquals(...) only looks at the number of children
+         *
+         * @return this key
+         */
+        NodeKey detach() {
+            GPNode copy = node.lightClone();
+            copy.parent = null;
+            copy.children = new GPNode[node.children.length];
+            node = copy;
+            return this;
+        }
+
+        public int hashCode() {
+            return hash;
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof NodeKey))
+                return false;
+            NodeKey k = (NodeKey) o;
+            return k.hash == hash && Arrays.equals(k.childIds, childIds) && k.node.nodeEquals(node);
+        }
+    }
+
+}
@@ -2,7 +2,6 @@ package ec.alps.gp.breed;
 
 import ec.EvolutionState;
 import ec.Individual;
-import ec.alps.Engine;
 import ec.gp.GPIndividual;
 import ec.gp.GPInitializer;
 import ec.gp.GPNode;
@@ -28,7 +27,6 @@ public class Crossover extends CrossoverPipeline {
 
     /** */
     private static final long serialVersionUID = 1;
-    private final String SELECTION_PRESSURE = "selection-pressure";
     /**
      * Temporary holding place for alps parent selection
      */
@@ -45,7 +43,7 @@ public class Crossover extends CrossoverPipeline {
     {
 
 
-        double selectionPressure = state.parameters.getDouble(Engine.base().push(SELECTION_PRESSURE), null);
+        double selectionPressure = state.alps.config.selectionPressure;
 
 
         // how many individuals should we make?
@@ -63,10 +61,14 @@ public class Crossover extends CrossoverPipeline {
 
         for (int q = start; q < n + start; /* no increment */)  // keep on going until we're filled up
         {
+            /* parents selected from the lower layer that keep their age (alps.age-only-current-layer) */
+            boolean[] keepAge = new boolean[parents.length];
+            boolean[] alpsKeepAge = new boolean[parents.length];
+
             // grab two individuals from our sources
             if (sources[0] == sources[1])  // grab from the same source
             {
-                if (Engine.alps.layers.get(Engine.alps.index).getIsBottomLayer()) {
+                if (state.alps.layers.get(state.alps.index).getIsBottomLayer()) {
                     sources[0].produce(2, 2, 0, subpopulation, parents, state, thread);
                 } else {
                     for (int u = 0; u <= 1; u++) {
@@ -76,19 +78,19 @@ public class Crossover extends CrossoverPipeline {
                          * which results in selection from the same source
                          */
                         alpsParents = parents.clone();
+                        alpsKeepAge = keepAge.clone();
 
                         //perform selection from current population if previous population is empty
-                        if ((state.random[0].nextDouble() <= selectionPressure) ||
-                                Engine.alps.layers.get(Engine.alps.index - 1).evolutionState.population.subpops[subpopulation].individuals.length == 0) {
+                        if ((state.random[thread].nextDouble() <= selectionPressure) ||
+                                state.alps.layers.get(state.alps.index - 1).evolutionState.population.subpops[subpopulation].individuals.length == 0) {
                             sources[0].produce(2, 2, 0, subpopulation, parents, state, thread);
+                            keepAge[0] = keepAge[1] = false;
                         } else //selecting from lower layer
                         {
                             sources[0].produce(2, 2, 0, subpopulation, parents,
-                                    Engine.alps.layers.get(Engine.alps.index - 1).evolutionState, thread);
+                                    state.alps.layers.get(state.alps.index - 1).evolutionState, thread);
                             /* When this flag is enabled, prevent increasing age for idividuals selected from lower layer for breeding  */
-                            if (Engine.alps_age_only_current_layer)
-                                for (Individual id : parents)
-                                    id.generationCount = state.generation;
+                            keepAge[0] = keepAge[1] = state.alps.alps_age_only_current_layer;
                         }
                     }
 
@@ -98,31 +100,32 @@ public class Crossover extends CrossoverPipeline {
                      * first parent parents[0] = alpsParents[0];
                      * */
                     parents[1] = alpsParents[0];
+                    keepAge[1] = alpsKeepAge[0];
 
                 }
             } else // grab from different sources
             {
-                if (Engine.alps.layers.get(Engine.alps.index).getIsBottomLayer()) {
+                if (state.alps.layers.get(state.alps.index).getIsBottomLayer()) {
                     sources[0].produce(1, 1, 0, subpopulation, parents, state, thread);
                     sources[1].produce(1, 1, 1, subpopulation, parents, state, thread);
                 } else {
                     for (int u = 0; u <= 1; u++) {
                         alpsParents = parents.clone(); //stores parents of first selection on second loop
+                        alpsKeepAge = keepAge.clone();
 
-                        if ((state.random[0].nextDouble() <= selectionPressure) ||
-                                Engine.alps.layers.get(Engine.alps.index - 1).evolutionState.population.subpops[subpopulation].individuals.length <= 0) {
+                        if ((state.random[thread].nextDouble() <= selectionPressure) ||
+                                state.alps.layers.get(state.alps.index - 1).evolutionState.population.subpops[subpopulation].individuals.length <= 0) {
                             sources[0].produce(1, 1, 0, subpopulation, parents, state, thread);
                             sources[1].produce(1, 1, 1, subpopulation, parents, state, thread);
+                            keepAge[0] = keepAge[1] = false;
                         } else //selecting from lower layer
                         {
                             sources[0].produce(1, 1, 0, subpopulation, parents,
-                                    Engine.alps.layers.get(Engine.alps.index - 1).evolutionState, thread);
+                                    state.alps.layers.get(state.alps.index - 1).evolutionState, thread);
                             sources[1].produce(1, 1, 1, subpopulation, parents,
-                                    Engine.alps.layers.get(Engine.alps.index - 1).evolutionState, thread);
+                                    state.alps.layers.get(state.alps.index - 1).evolutionState, thread);
                             /* When this flag is enabled, prevent increasing age for idividuals selected from lower layer for breeding  */
-                            if (Engine.alps_age_only_current_layer)
-                                for (Individual id : parents)
-                                    id.generationCount = state.generation;
+                            keepAge[0] = keepAge[1] = state.alps.alps_age_only_current_layer;
                         }
                     }
                 }
@@ -133,6 +136,7 @@ public class Crossover extends CrossoverPipeline {
                  * first parent parents[1] = alpsParents[0];
                  * */
                 parents[1] = alpsParents[0];
+                keepAge[1] = alpsKeepAge[0];
 
 
             }
@@ -140,12 +144,11 @@ public class Crossover extends CrossoverPipeline {
             //System.out.println("System out println : "+parents.length); System.exit(0);
 
 
-            for (int id = 0; id < parents.length; id++) {
-                if (state.generation != parents[id].generationCount/*!parents[k].parentFlag*/) {
-                    parents[id].age++;
-                    parents[id].generationCount = state.generation;
-                }
-            }
+            /* parents are shared with other breeding threads, ParentAging ages them after breeding */
+            double[] ages = new double[parents.length];
+            for (int id = 0; id < parents.length; id++)
+                ages[id] = keepAge[id] ? state.alps.aging.keepAge(state, parents[id], thread)
+                        : state.alps.aging.age(state, parents[id], thread);
 
 
             // at this point, parents[] contains our two selected individuals
@@ -308,10 +311,11 @@ public class Crossover extends CrossoverPipeline {
              */
 
             /* offspring gets age of oldest/youngest parent */
-            inds[q].age = (Engine.alps_assign_max_parent_age) ?
-                    Math.max(parents[0].age, parents[1].age) : Math.min(parents[0].age, parents[1].age);
+            inds[q].age = (state.alps.alps_assign_max_parent_age) ?
+                    Math.max(ages[0], ages[1]) : Math.min(ages[0], ages[1]);
+            inds[q].generationCount = state.generation;
             /* get minimum/maximum evaluation for parent. the lowest evaluation count is the oldest parent */
-            inds[q].evaluation = (Engine.alps_assign_max_parent_age) ?
+            inds[q].evaluation = (state.alps.alps_assign_max_parent_age) ?
                     Math.min(parents[0].evaluation, parents[1].evaluation) : Math.max(parents[0].evaluation, parents[1].evaluation);
             q++;
             if (q < n + start && !tossSecondParent) {
@@ -322,10 +326,11 @@ public class Crossover extends CrossoverPipeline {
                  * @author anthony
                  */
                 /* offspring gets age of oldest/youngest parent */
-                inds[q].age = (Engine.alps_assign_max_parent_age) ?
-                        Math.max(parents[0].age, parents[1].age) : Math.min(parents[0].age, parents[1].age);
+                inds[q].age = (state.alps.alps_assign_max_parent_age) ?
+                        Math.max(ages[0], ages[1]) : Math.min(ages[0], ages[1]);
+                inds[q].generationCount = state.generation;
                 /* get minimum/maximum evaluation for parent. the lowest evaluation count is the oldest parent */
-                inds[q].evaluation = (Engine.alps_assign_max_parent_age) ?
+                inds[q].evaluation = (state.alps.alps_assign_max_parent_age) ?
                         Math.min(parents[0].evaluation, parents[1].evaluation) : Math.max(parents[0].evaluation, parents[1].evaluation);
                 q++;
             }
@@ -3,7 +3,6 @@ package ec.alps.gp.breed;
 import ec.BreedingPipeline;
 import ec.EvolutionState;
 import ec.Individual;
-import ec.alps.Engine;
 import ec.gp.*;
 import ec.gp.koza.MutationPipeline;
 
@@ -21,7 +20,6 @@ public class Mutation extends MutationPipeline {
      */
     private static final long serialVersionUID = 1;
 
-    private final String SELECTION_PRESSURE = "selection-pressure";
 
 
     public int produce(final int min,
@@ -32,14 +30,16 @@ public class Mutation extends MutationPipeline {
                        final EvolutionState state,
                        final int thread) {
 
-        double selectionPressure = state.parameters.getDouble(Engine.base().push(SELECTION_PRESSURE), null);
+        double selectionPressure = state.alps.config.selectionPressure;
 
         int n;
+        /* individuals selected from the lower layer keep their age (alps.age-only-current-layer) */
+        boolean keepAge = false;
 
 
-        if (Engine.alps.layers.get(Engine.alps.index).getIsBottomLayer() ||
-                state.random[0].nextDouble() <= selectionPressure ||
-                Engine.alps.layers.get(Engine.alps.index - 1).evolutionState.population.subpops[subpopulation].individuals.length == 0) {
+        if (state.alps.layers.get(state.alps.index).getIsBottomLayer() ||
+                state.random[thread].nextDouble() <= selectionPressure ||
+                state.alps.layers.get(state.alps.index - 1).evolutionState.population.subpops[subpopulation].individuals.length == 0) {
             // grab individuals from our source and stick 'em right into inds.
             // we'll modify them from there
             n = sources[0].produce(min, max, start, subpopulation, inds, state, thread);
@@ -52,17 +52,15 @@ public class Mutation extends MutationPipeline {
             // grab individuals from our source and stick 'em right into inds.
             // we'll modify them from there
             n = sources[0].produce(min, max, start, subpopulation, inds,
-                    Engine.alps.layers.get(Engine.alps.index - 1).evolutionState, thread);
+                    state.alps.layers.get(state.alps.index - 1).evolutionState, thread);
 
             // should we bother?
             if (!state.random[thread].nextBoolean(likelihood))
                 return reproduce(n, start, subpopulation, inds,
-                        Engine.alps.layers.get(Engine.alps.index - 1).evolutionState, thread, false);  // DON'T produce children from source -- we already did
+                        state.alps.layers.get(state.alps.index - 1).evolutionState, thread, false);  // DON'T produce children from source -- we already did
 
             /* When this flag is enabled, prevent increasing age for idividuals selected from lower layer for breeding  */
-            if (Engine.alps_age_only_current_layer)
-                for (int q = start; q < n + start; q++)
-                    inds[q].generationCount = state.generation;
+            keepAge = state.alps.alps_age_only_current_layer;
 
         }
 
@@ -82,12 +80,12 @@ public class Mutation extends MutationPipeline {
              *
              * There's no need modifying evaluation count for individuals because its still the same
              *
+             * inds[q] may be shared with other breeding threads, ParentAging ages it after breeding
+             *
              * @author Anthony
              */
-            if (state.generation != inds[q].generationCount/*!parents[0].parentFlag*/) {
-                inds[q].age++;
-                inds[q].generationCount = state.generation;
-            }
+            double age = keepAge ? state.alps.aging.keepAge(state, inds[q], thread)
+                    : state.alps.aging.age(state, inds[q], thread);
 
 
             GPIndividual i = (GPIndividual) inds[q];
@@ -192,10 +190,10 @@ public class Mutation extends MutationPipeline {
              * increase age of offsping
              * @author Anthony
              *
-             * age of parent already increased -- will automatically increase child's age
-             *
-             * inds[q].age++;
+             * offspring takes the age of its parent, already increased
              */
+            inds[q].age = age;
+            inds[q].generationCount = state.generation;
 
 
         }
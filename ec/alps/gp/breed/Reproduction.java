@@ -3,7 +3,6 @@ package ec.alps.gp.breed;
 import ec.EvolutionState;
 import ec.Individual;
 import ec.SelectionMethod;
-import ec.alps.Engine;
 import ec.breed.ReproductionPipeline;
 
 /**
@@ -19,7 +18,6 @@ public class Reproduction extends ReproductionPipeline {
     /** */
     private static final long serialVersionUID = 1;
 
-    private final String SELECTION_PRESSURE = "selection-pressure";
 
     public int produce(
             final int min,
@@ -30,13 +28,15 @@ public class Reproduction extends ReproductionPipeline {
             final EvolutionState state,
             final int thread) {
 
-        double selectionPressure = state.parameters.getDouble(Engine.base().push(SELECTION_PRESSURE), null);
+        double selectionPressure = state.alps.config.selectionPressure;
 
         int n;
+        /* individuals selected from the lower layer keep their age (alps.age-only-current-layer) */
+        boolean keepAge = false;
 
-        if (Engine.alps.layers.get(Engine.alps.index).getIsBottomLayer() ||
-                (Engine.alps.index > 0 && ((state.random[0].nextDouble() <= selectionPressure) ||
-                        Engine.alps.layers.get(Engine.alps.index - 1).evolutionState.population.subpops[subpopulation].individuals.length <= 0))) {
+        if (state.alps.layers.get(state.alps.index).getIsBottomLayer() ||
+                (state.alps.index > 0 && ((state.random[thread].nextDouble() <= selectionPressure) ||
+                        state.alps.layers.get(state.alps.index - 1).evolutionState.population.subpops[subpopulation].individuals.length <= 0))) {
             // grab individuals from our source and stick 'em right into inds.
             // we'll modify them from there
             n = sources[0].produce(min, max, start, subpopulation, inds, state, thread);
@@ -44,25 +44,27 @@ public class Reproduction extends ReproductionPipeline {
             // grab individuals from our source and stick 'em right into inds.
             // we'll modify them from there
             n = sources[0].produce(min, max, start, subpopulation, inds,
-                    Engine.alps.layers.get(Engine.alps.index - 1).evolutionState, thread);
+                    state.alps.layers.get(state.alps.index - 1).evolutionState, thread);
 
             /* When this flag is enabled, prevent increasing age for idividuals selected from lower layer for breeding  */
-            if (Engine.alps_age_only_current_layer)
-                for (int q = start; q < n + start; q++)
-                    inds[q].generationCount = state.generation;
+            keepAge = state.alps.alps_age_only_current_layer;
         }
 
 
         if (mustClone || sources[0] instanceof SelectionMethod)
             for (int q = start; q < n + start; q++) {
 
-                if (state.generation != inds[q].generationCount/*!parents[0].parentFlag*/) {   //System.out.println("ANTHONY WAS HERE1! BEFORE:"+inds[q].age+"AFTER:"); System.exit(0);
-                    inds[q].age++;
-                    inds[q].generationCount = state.generation;
-                }
+                /* inds[q] may be shared with other breeding threads, ParentAging ages it after breeding */
+                double age = keepAge ? state.alps.aging.keepAge(state, inds[q], thread)
+                        : state.alps.aging.age(state, inds[q], thread);
 
                 inds[q] = (Individual) (inds[q].clone());
+                inds[q].age = age;
+                inds[q].generationCount = state.generation;
             }
+        else if (keepAge) // already copies
+            for (int q = start; q < n + start; q++)
+                inds[q].generationCount = state.generation;
         return n;
     }
 
@@ -1,10 +1,28 @@
 package ec.alps.layers;
 
+import ec.alps.ALPSConfig;
+import ec.alps.BreedingPool;
+import ec.alps.EvaluationBudget;
+import ec.alps.EvaluationPool;
+import ec.alps.FitnessCache;
+import ec.alps.ParentAging;
+import ec.alps.VirtualEvaluation;
+import ec.alps.data.ColumnarDataset;
+import ec.alps.data.GenerationalCases;
+import ec.fsalps.Roulette;
+
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * This DS holds all evolving ALPS Layers. The top-level class iteratively
  * sequences through the layers to determine order of evolution
+ * <p>
+ * It is also the run context of a single ALPS job: the global counters and the ALPS/FSALPS settings
+ * loaded by Engine live here rather than in static fields, and every layer's EvolutionState reaches
+ * them through state.alps. Several jobs can therefore run side by side in one JVM.
  *
  * @author Anthony Awuley
  */
@@ -17,6 +35,142 @@ public class ALPSLayers {
      * Points to the current active layer in ALPS
      */
     public int index;
+    /** */
+    public int completeGenerationalCount = 0; //changed from 1
+    /**
+     * used in steady state evolution
+     */
+    public int completeEvaluationCount = 0;
+    /**
+     * global count of evaluations. initialized to 0
+     */
+    public int globalEvaluations = 0;
+    /**
+     * evaluations and evaluation time of every layer, and the budget scheduler, set up by Engine
+     */
+    public EvaluationBudget budget;
+    /**
+     * This is the same as the number of expected population in a layer
+     * this is modified during startFresh() in steady state
+     */
+    public int generationSize = 0;
+    /**
+     * Evaluation is always measured using alpsEvaluations. when generation is specified, it is converted to alpsEvaluations using
+     * numGenerations * alpsAgeLayers * generationSize;
+     * else the number of evaluations specified is used.
+     * this gives the total number of evaluations required to complete
+     * all ALPS runs
+     */
+    public int alpsEvaluations = 0; //modified in code
+    /**
+     * this is the total number of specified generations in parameter file
+     */
+    public int numGenerations;
+    /**
+     * number of chunks available when using k-fold cross validation
+     */
+    public int kFoldCrossValidationSize = 1;
+    /**
+     * settings read while breeding and migrating, resolved once by Engine
+     */
+    public ALPSConfig config;
+    /**
+     * ages the parents used by the breeding pipelines, see ALPSBreeder.breedPopulation(...)
+     */
+    public ParentAging aging = new ParentAging();
+    /**
+     * fitness cases an individual of layer L is evaluated on, caseSampleSizes[L], 0 for all cases.
+     * null unless alps.case-sample-size samples the cases of some layer
+     */
+    public int[] caseSampleSizes;
+    /**
+     * Used to keep node usage for terminal sets
+     * stored default node settings for terminals
+     */
+    public Map<String, Double> nodeCountTerminalSet = new LinkedHashMap<String, Double>();
+    /**
+     * Used to keep node usage for function sets
+     * stored default node settings for non-terminals
+     */
+    public Map<String, Double> nodeCountFunctionSet = new LinkedHashMap<String, Double>();
+    /**
+     * Use strictly default node count specified in parameter file
+     */
+    public boolean fsalps_use_only_default_node_pr = false;
+    /**
+     * When true, all layers node count is used in generating
+     * probability node selection
+     * Else only last layer node count (frequency) is converted to probabilities
+     * see layerFrequencySelection(ALPSLayers alps,EvolutionState state) in Roulette class for implementation
+     */
+    public boolean fsalps_count_all_layers = false;
+    /**
+     * FSALPS is active
+     */
+    public boolean fsalps_active = false;
+    /**
+     * Use FSALPS generated frequency count during mutation
+     *
+     * @deprecated
+     */
+    public boolean fsalps_use_mutation = true;
+    /**
+     * Should frequency count be performed for every generation in the highest ALPS layer?
+     * if false, frequency count is performed at every age-gap interval
+     */
+    public boolean fsalps_gen_freq_count = false;
+    /**
+     * by default an offspring is assigned the age of the oldest parent + 1.
+     * if this flag is set to false, then the minimum age +1 is assigned to the offspring
+     */
+    public boolean alps_assign_max_parent_age = true;
+    /**
+     * when true, only individuals selected from breeding from current layer have their age increased
+     * else both both individuals coming from current and lower layer used as parents will have their age increased
+     */
+    public boolean alps_age_only_current_layer = false;
+    /**
+     * when using selection pressure, individual aging isn't uniform especially when parents are selected from lower
+     * layer. When some individuals are aged faster than others, a population will contain less than expected required number
+     * ECJ by default breeds a maximum of the number of populations contained in a population.
+     */
+    public boolean always_breed_maximum_pop = true;
+    /**
+     * when true, the populations of all layers that evolve in a global generation are evaluated as one batch
+     * by a LayerScheduler before the layers are evolved and migrated top-down as usual.
+     * Only generational ALPS (GenEvolutionState) supports this.
+     */
+    public boolean alps_parallel_scheduler = false;
+    /**
+     * hold rouletee values
+     */
+    public Roulette roulette;
+    /**
+     * evaluation threads shared by all layers, created by the first multi-threaded ALPSEvaluator call
+     * and shut down by Engine.clearSystem
+     */
+    public EvaluationPool evaluationPool;
+    /**
+     * breeding threads shared by all layers when breed.task-size is set, shut down by Engine.clearSystem
+     */
+    public BreedingPool breedingPool;
+    /**
+     * virtual evaluation threads shared by all layers when eval.threads-mode = virtual,
+     * shut down by Engine.clearSystem
+     */
+    public VirtualEvaluation virtualEvaluation;
+    /**
+     * fitnesses of already evaluated trees shared by all layers when eval.fitness-cache is set, null otherwise
+     */
+    public FitnessCache fitnessCache;
+    /**
+     * datasets mapped by the layers' Problems, by file name, so every file is opened once per run
+     */
+    public Map<String, ColumnarDataset> datasets = new HashMap<>();
+    /**
+     * fitness case sets fixed per global generation, by Problem parameter base, shared by all layers
+     */
+    public Map<String, GenerationalCases> generationalCases = new HashMap<>();
 
 
     /** */
@@ -29,9 +29,9 @@ public abstract class AgingScheme {
     /** */
     public final static String AGE_LAYERS = "number-of-layers";
     /** */
-    public static int alpsAgeGap = 0;
+    public int alpsAgeGap = 0;
     /** */
-    public static int alpsAgeLayers = 0;
+    public int alpsAgeLayers = 0;
     /** */
     public ArrayList<Layer> layers;
 
@@ -2,13 +2,13 @@ package ec.alps.layers;
 
 import ec.EvolutionState;
 import ec.Individual;
-import ec.Initializer;
 import ec.Population;
 import ec.alps.Engine;
 import ec.select.TournamentSelection;
 import ec.util.Parameter;
 
 import java.util.ArrayList;
+import java.util.Set;
 
 /**
  * The ALPS strategy requires regular inter–layer migration for individuals that are older than the
@@ -37,7 +37,7 @@ public abstract class Replacement extends TournamentSelection {
      * the we the weakest tournament is ONLY REPLACED IF AND ONLY IF its fitness
      * is lower than the fitness of the over aged individual.
      */
-    public static boolean replaceWeakest = false;
+    public boolean replaceWeakest = false;
     /** */
     protected int worseIndividual;
     /** */
@@ -55,6 +55,19 @@ public abstract class Replacement extends TournamentSelection {
         System.arraycopy(arr, remIndex + 1, arr, remIndex, numElts);
     }
 
+    /**
+     * Returns ind, which is leaving its layer, for the higher layer. The layer drops ind after migration, so it is
+     * handed over rather than cloned. Only an individual already handed over in this migration, i.e. one that
+     * occurs twice in the layer, is cloned, so that the higher layer never holds the same object twice.
+     *
+     * @param ind   individual leaving its layer
+     * @param moved individuals handed over so far, compared by identity
+     * @return ind or a copy of it
+     */
+    protected static Individual migrant(Individual ind, Set<Individual> moved) {
+        return moved.add(ind) ? ind : (Individual) ind.clone();
+    }
+
     /**
      * setup Replacement strategy
      */
@@ -115,9 +128,7 @@ public abstract class Replacement extends TournamentSelection {
 
         for (int sub = 0; sub < alps.layers.get(alps.index).evolutionState.population.subpops.length; sub++) {
             /** total number of populations expected */
-            int size = alps.layers.get(alps.index).evolutionState.
-                    parameters.getInt(new Parameter(Initializer.P_POP).
-                    push(Population.P_SUBPOP).push(sub + "").push(POP_SIZE), null);
+            int size = alps.config.subpopSize(sub);
 
 
             if (alps.index == (alps.layers.size() - 1)) {
@@ -293,7 +304,7 @@ public abstract class Replacement extends TournamentSelection {
         int worst = getRandomIndividual(0, subpopulation, state, thread);
 
         // int s = getTournamentSizeToUse(state.random[thread]); //was not picking system set tournament selection
-        int s = state.parameters.getInt(Engine.base().push(ALPS_TOURNAMENT_SIZE), null);
+        int s = state.alps.config.tournamentSize;
 
         for (int x = 1; x < s; x++) {
             int j = getRandomIndividual(x, subpopulation, state, thread);
@@ -321,7 +332,7 @@ public abstract class Replacement extends TournamentSelection {
         int best = getRandomIndividual(0, subpopulation, state, thread);
 
         // int s = getTournamentSizeToUse(state.random[thread]); //was not picking system set tournament selection
-        int s = state.parameters.getInt(Engine.base().push(ALPS_TOURNAMENT_SIZE), null);
+        int s = state.alps.config.tournamentSize;
 
         for (int x = 1; x < s; x++) {
             int j = getRandomIndividual(x, subpopulation, state, thread);
@@ -350,8 +361,7 @@ public abstract class Replacement extends TournamentSelection {
         Individual[] oldinds = state.population.subpops[subpopulation].individuals;
         double fitness = newIndividual.fitness.fitness();
 
-        int s = state.parameters.getInt(Engine.base().push(ALPS_TOURNAMENT_SIZE),
-                null);
+        int s = state.alps.config.tournamentSize;
 
         for (int x = 1; x < s; x++) {
             int j = getRandomIndividual(x, subpopulation, state, thread);
@@ -27,9 +27,9 @@ public class Exponential extends AgingScheme {
     public ArrayList<Layer> agingScheme() {
         layers = new ArrayList<>();
 
-        for (int i = 0; i < AgingScheme.alpsAgeLayers; i++) {
+        for (int i = 0; i < alpsAgeLayers; i++) {
             Layer layer = new Layer();
-            layer.setMaxAgeLayer((int) Math.pow(2, i) * AgingScheme.alpsAgeGap);
+            layer.setMaxAgeLayer((int) Math.pow(2, i) * alpsAgeGap);
             layer.setIsActive(Boolean.FALSE);
             layer.setId(i);
 
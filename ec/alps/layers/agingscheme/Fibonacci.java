@@ -28,13 +28,13 @@ public class Fibonacci extends AgingScheme {
         int sum;
         layers = new ArrayList<>();
 
-        for (int i = 0; i < AgingScheme.alpsAgeLayers; i++) {
+        for (int i = 0; i < alpsAgeLayers; i++) {
             Layer layer = new Layer();
             sum = first + second;
             first = second;
             second = sum;
 
-            layer.setMaxAgeLayer(sum * AgingScheme.alpsAgeGap);
+            layer.setMaxAgeLayer(sum * alpsAgeGap);
             layer.setIsActive(Boolean.FALSE);
             //layer.setGenerationalCount(0); //initialize generational count
             layer.setId(i);
@@ -26,9 +26,9 @@ public class Linear extends AgingScheme {
 
         //this.toString(" with an age gap of "+ ageGap +" and "+ ageLayers +" layers");
 
-        for (int i = 0; i < AgingScheme.alpsAgeLayers; i++) {
+        for (int i = 0; i < alpsAgeLayers; i++) {
             Layer layer = new Layer();
-            layer.setMaxAgeLayer((i + 1) * AgingScheme.alpsAgeGap);
+            layer.setMaxAgeLayer((i + 1) * alpsAgeGap);
             layer.setIsActive(Boolean.FALSE);
             layer.setId(i);
 
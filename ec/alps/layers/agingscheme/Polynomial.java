@@ -29,21 +29,21 @@ public class Polynomial extends AgingScheme {
         //this.toString(" with an age gap of "+ ageGap +" and "+ ageLayers +" layers");
         layers = new ArrayList<>();
 
-        for (int i = 0; i < AgingScheme.alpsAgeLayers; i++) {
+        for (int i = 0; i < alpsAgeLayers; i++) {
             Layer layer = new Layer();
             layer.setIsActive(Boolean.FALSE);
             //layer.setGenerationalCount(0); //initialize generational count
             layer.setId(i);
 
             if (i == 0) {
-                layer.setMaxAgeLayer((int) 1 * AgingScheme.alpsAgeGap);//0:1
+                layer.setMaxAgeLayer((int) 1 * alpsAgeGap);//0:1
                 layer.setIsBottomLayer(Boolean.TRUE);
                 layer.setGenerations(layer.getMaxAge());
             } else {
                 if (i == 1)
-                    layer.setMaxAgeLayer((int) 2 * AgingScheme.alpsAgeGap); // 1:2
+                    layer.setMaxAgeLayer((int) 2 * alpsAgeGap); // 1:2
                 else
-                    layer.setMaxAgeLayer((int) Math.pow(i, 2) * AgingScheme.alpsAgeGap);
+                    layer.setMaxAgeLayer((int) Math.pow(i, 2) * alpsAgeGap);
 
                 layer.setIsBottomLayer(Boolean.FALSE);
                 layer.setGenerations( //get the difference between maximum of this layer and previous layer
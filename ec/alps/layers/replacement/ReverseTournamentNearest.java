@@ -1,15 +1,15 @@
 package ec.alps.layers.replacement;
 
 import ec.Individual;
-import ec.Initializer;
 import ec.Population;
-import ec.alps.Engine;
 import ec.alps.layers.ALPSLayers;
 import ec.alps.layers.Replacement;
 import ec.alps.util.Operations;
-import ec.util.Parameter;
 
-import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
 
 /**
  * In ReverseTournamentNearest replacement, when an old  individual from a lower layer is moving to a higher layer
@@ -42,15 +42,17 @@ public class ReverseTournamentNearest extends Replacement {
 
     public void layerMigrations(ALPSLayers alps, Population current) {
         Population higherPop = null;
-        ArrayList<Individual> deleteList = new ArrayList<>();
+        /* positions of the individuals leaving the current layer */
+        BitSet leaving = new BitSet();
+        /* migrants are moved to the higher layer, not cloned */
+        Set<Individual> moved = Collections.newSetFromMap(new IdentityHashMap<Individual, Boolean>());
 
 
         if (alps.index < (alps.layers.size() - 1)) {
             for (int subpopulation = 0; subpopulation < alps.layers.get(alps.index).evolutionState.population.subpops.length; subpopulation++) {
 
                 /* total number of populations expected */
-                int size = alps.layers.get(alps.index).evolutionState.
-                        parameters.getInt(new Parameter(Initializer.P_POP).push(Population.P_SUBPOP).push(subpopulation + "").push(POP_SIZE), null);
+                int size = alps.config.subpopSize(subpopulation);
 
                 /* initialize number of individuals added  */
                 alps.layers.get(alps.index + 1).individualCount = 0;
@@ -76,8 +78,8 @@ public class ReverseTournamentNearest extends Replacement {
                             alps.layers.get(alps.index + 1).setIsActive(true);
 
                             alps.layers.get(alps.index + 1).evolutionState.population.subpops[subpopulation].
-                                    add((Individual) current.subpops[subpopulation].individuals[i].clone());
-                            deleteList.add(current.subpops[subpopulation].individuals[i]); // now added--remove if problematic
+                                    add(migrant(current.subpops[subpopulation].individuals[i], moved));
+                            leaving.set(i); // now added--remove if problematic
 
                             /* count individuals added */
                             alps.layers.get(alps.index + 1).individualCount++;
@@ -93,16 +95,16 @@ public class ReverseTournamentNearest extends Replacement {
 
                             if (replaceWeakest)  /* always replace weakest tournament individual with new individual */
                                 alps.layers.get(alps.index + 1).evolutionState.population.subpops[subpopulation].individuals[nearestIndividual] =
-                                        (Individual) current.subpops[subpopulation].individuals[i].clone();
+                                        migrant(current.subpops[subpopulation].individuals[i], moved);
                             else /* only replace weakest tournament individual if its fitness is lower than new individual from lower layer*/
                                 if (current.subpops[subpopulation].individuals[i].fitness.betterThan(
                                         alps.layers.get(alps.index + 1).evolutionState.population.subpops[subpopulation].individuals[nearestIndividual].fitness))
                                     alps.layers.get(alps.index + 1).evolutionState.population.subpops[subpopulation].individuals[nearestIndividual] =
-                                            (Individual) current.subpops[subpopulation].individuals[i].clone();
+                                            migrant(current.subpops[subpopulation].individuals[i], moved);
 
                             //alps.layers.get(alps.index + 1).getEvolution().getCurrentPopulation().
                             //        set(this.worseIndividual, current.get(i));
-                            deleteList.add(current.subpops[subpopulation].individuals[i]);
+                            leaving.set(i);
 
                             /* count individuals added */
                             alps.layers.get(alps.index + 1).individualCount++;
@@ -110,12 +112,13 @@ public class ReverseTournamentNearest extends Replacement {
                     }
                 }
                 //remove all individuals older than current layer
-                current.subpops[subpopulation].individuals = Operations.emptyPop(current.subpops[subpopulation].individuals, deleteList);
+                current.subpops[subpopulation].individuals = Operations.compact(current.subpops[subpopulation].individuals, leaving);
 
-                deleteList.clear();
+                leaving.clear();
+                moved.clear();
 
 				/* fill empty slots for maximum breeding 
-				if(Engine.always_breed_maximum_pop)
+				if(alps.always_breed_maximum_pop)
 					current.subpops[subpopulation].individuals =
 					fillPopTournament(current.subpops[subpopulation].individuals.length,
 							size,
@@ -127,7 +130,7 @@ public class ReverseTournamentNearest extends Replacement {
         }
 
         /* fill empty slots for maximum breeding */
-        if (Engine.always_breed_maximum_pop)
+        if (alps.always_breed_maximum_pop)
             consolidatePopulation(alps, 0);
 
     }
@@ -1,15 +1,15 @@
 package ec.alps.layers.replacement;
 
 import ec.Individual;
-import ec.Initializer;
 import ec.Population;
-import ec.alps.Engine;
 import ec.alps.layers.ALPSLayers;
 import ec.alps.layers.Replacement;
 import ec.alps.util.Operations;
-import ec.util.Parameter;
 
-import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
 
 
 /**
@@ -43,15 +43,16 @@ public class ReverseTournamentWorst extends Replacement {
      */
     public void layerMigrations(ALPSLayers alps, Population current) {
         Population higherPop = null;
-        ArrayList<Individual> deleteList = new ArrayList<>();
+        /* positions of the individuals leaving the current layer */
+        BitSet leaving = new BitSet();
+        /* migrants are moved to the higher layer, not cloned */
+        Set<Individual> moved = Collections.newSetFromMap(new IdentityHashMap<Individual, Boolean>());
 
 
         if (alps.index < (alps.layers.size() - 1)) {
             for (int subpopulation = 0; subpopulation < alps.layers.get(alps.index).evolutionState.population.subpops.length; subpopulation++) {
                 /* total number of populations expected */
-                int size = alps.layers.get(alps.index).evolutionState.
-                        parameters.getInt(new Parameter(Initializer.P_POP).
-                        push(Population.P_SUBPOP).push(subpopulation + "").push(POP_SIZE), null);
+                int size = alps.config.subpopSize(subpopulation);
 
 
                 /* initialize number of individuals added  */
@@ -80,8 +81,8 @@ public class ReverseTournamentWorst extends Replacement {
                             alps.layers.get(alps.index + 1).setIsActive(true);
 
                             alps.layers.get(alps.index + 1).evolutionState.population.subpops[subpopulation].
-                                    add((Individual) current.subpops[subpopulation].individuals[i].clone());
-                            deleteList.add(current.subpops[subpopulation].individuals[i]); // now added--remove if problematic
+                                    add(migrant(current.subpops[subpopulation].individuals[i], moved));
+                            leaving.set(i); // now added--remove if problematic
                             /* count individuals added */
                             alps.layers.get(alps.index + 1).individualCount++;
                         } else if (higherPop.subpops[subpopulation].individuals.length > 0) //once higher layer is filled, do selective replacement based on new individuals that have higher age than in the individual in the  higher layer
@@ -94,17 +95,17 @@ public class ReverseTournamentWorst extends Replacement {
                             /* always replace weakest tournament individual with new individual */
                             if (replaceWeakest)
                                 alps.layers.get(alps.index + 1).evolutionState.population.subpops[subpopulation].individuals[worseIndividual] =
-                                        (Individual) current.subpops[subpopulation].individuals[i].clone();
+                                        migrant(current.subpops[subpopulation].individuals[i], moved);
                             else /* only replace weakest tournament individual if its fitness is lower than new individual from lower layer*/
                                 if (current.subpops[subpopulation].individuals[i].fitness.betterThan(
                                         alps.layers.get(alps.index + 1).evolutionState.population.subpops[subpopulation].individuals[worseIndividual].fitness))
                                     alps.layers.get(alps.index + 1).evolutionState.
                                             population.subpops[subpopulation].individuals[worseIndividual] =
-                                            (Individual) current.subpops[subpopulation].individuals[i].clone();
+                                            migrant(current.subpops[subpopulation].individuals[i], moved);
 
                             //alps.layers.get(alps.index + 1).getEvolution().getCurrentPopulation().
                             //        set(this.worseIndividual, current.get(i));
-                            deleteList.add(current.subpops[subpopulation].individuals[i]);
+                            leaving.set(i);
                             /* count individuals added */
                             alps.layers.get(alps.index + 1).individualCount++;
                         }
@@ -113,12 +114,13 @@ public class ReverseTournamentWorst extends Replacement {
 
                 //remove all individuals older than current layer
                 current.subpops[subpopulation].individuals =
-                        Operations.emptyPop(current.subpops[subpopulation].individuals, deleteList);
+                        Operations.compact(current.subpops[subpopulation].individuals, leaving);
 
-                deleteList.clear();
+                leaving.clear();
+                moved.clear();
 
 				/* fill empty slots for maximum breeding 
-				if(Engine.always_breed_maximum_pop)
+				if(alps.always_breed_maximum_pop)
 					current.subpops[subpopulation].individuals =
 					fillPopTournament(current.subpops[subpopulation].individuals.length,
 							size,
@@ -130,7 +132,7 @@ public class ReverseTournamentWorst extends Replacement {
         }
 
         /* fill empty slots for maximum breeding */
-        if (Engine.always_breed_maximum_pop)
+        if (alps.always_breed_maximum_pop)
             consolidatePopulation(alps, 0);
 
 
@@ -2,7 +2,6 @@ package ec.alps.statistics;
 
 import ec.*;
 import ec.EvolutionState;
-import ec.alps.Engine;
 import ec.util.*;
 
 
@@ -152,7 +151,7 @@ public class ALPSShortStatistics extends Statistics {
 
     public void preInitializationStatistics(final EvolutionState state) {
         super.preInitializationStatistics(state);
-        boolean output = (Engine.completeGenerationalCount % modulus == 0);
+        boolean output = (state.alps.completeGenerationalCount % modulus == 0);
 
         if (output && doTime) {
             // Runtime r = Runtime.getRuntime();
@@ -162,7 +161,7 @@ public class ALPSShortStatistics extends Statistics {
 
     public void postInitializationStatistics(final EvolutionState state) {
         super.postInitializationStatistics(state);
-        boolean output = (Engine.completeGenerationalCount % modulus == 0);
+        boolean output = (state.alps.completeGenerationalCount % modulus == 0);
 
         // set up our bestSoFar array -- can't do this in setup, because
         // we don't know if the number of subpopulations has been determined yet
@@ -170,7 +169,7 @@ public class ALPSShortStatistics extends Statistics {
 
 
         // print out our generation number
-        if (Engine.completeGenerationalCount == 0 && output)
+        if (state.alps.completeGenerationalCount == 0 && output)
             state.output.print("0 ", statisticslog);
         else
             state.output.print("", statisticslog);
@@ -184,7 +183,7 @@ public class ALPSShortStatistics extends Statistics {
          * uncoment later - responsible for non-uniform statistics dumps
          * state.output.print("" + (System.currentTimeMillis()-lastTime) + " ",  statisticslog);
          */
-        if (output && doTime && Engine.completeGenerationalCount == 0) {
+        if (output && doTime && state.alps.completeGenerationalCount == 0) {
             //Runtime r = Runtime.getRuntime();
             state.output.print("" + (System.currentTimeMillis() - lastTime) + " ", statisticslog);
         }
@@ -192,7 +191,7 @@ public class ALPSShortStatistics extends Statistics {
 
     public void preBreedingStatistics(final EvolutionState state) {
         super.preBreedingStatistics(state);
-        boolean output = (Engine.completeGenerationalCount % modulus == modulus - 1);
+        boolean output = (state.alps.completeGenerationalCount % modulus == modulus - 1);
         if (output && doTime) {
             //Runtime r = Runtime.getRuntime();
             lastTime = System.currentTimeMillis();
@@ -204,24 +203,24 @@ public class ALPSShortStatistics extends Statistics {
      */
     public void postBreedingStatistics(final EvolutionState state) {
         super.postBreedingStatistics(state);
-        boolean output = (Engine.completeGenerationalCount % modulus == modulus - 1);
+        boolean output = (state.alps.completeGenerationalCount % modulus == modulus - 1);
         long totalInitTime = 0;
 
         /* @author anthony
          * ALPS Stats Modification
          */
-        //if (output) state.output.print("" + (Engine.completeGenerationalCount + 1) + " ", statisticslog); // 1 because we're putting the breeding info on the same line as the generation it *produces*, and the generation number is increased *after* breeding occurs, and statistics for it
+        //if (output) state.output.print("" + (state.alps.completeGenerationalCount + 1) + " ", statisticslog); // 1 because we're putting the breeding info on the same line as the generation it *produces*, and the generation number is increased *after* breeding occurs, and statistics for it
 
         if (output)
-            state.output.print("" + (Engine.globalEvaluations + 1) + " ", statisticslog); // 1 because we're putting the breeding info on the same line as the generation it *produces*, and the generation number is increased *after* breeding occurs, and statistics for it
+            state.output.print("" + (state.alps.globalEvaluations + 1) + " ", statisticslog); // 1 because we're putting the breeding info on the same line as the generation it *produces*, and the generation number is increased *after* breeding occurs, and statistics for it
 
         // gather timings
         if (output && doTime) {
             //Runtime r = Runtime.getRuntime();
             //long curU =  r.totalMemory() - r.freeMemory();
-            for (int index = 0; index < Engine.alps.layers.size(); index++)
+            for (int index = 0; index < state.alps.layers.size(); index++)
                 try {
-                    totalInitTime += Engine.alps.layers.get(index).initializationTime;
+                    totalInitTime += state.alps.layers.get(index).initializationTime;
                 } catch (ArrayIndexOutOfBoundsException e) {
                 } //do nothing
 
@@ -230,13 +229,13 @@ public class ALPSShortStatistics extends Statistics {
             /* last initialization time (moved to ShortStatistics) this is to allow a uniform
              * timing between both statistics objects
              */
-            //Engine.alps.layers.get(Engine.alps.index).initializationTime = System.currentTimeMillis()-lastTime;
+            //state.alps.layers.get(state.alps.index).initializationTime = System.currentTimeMillis()-lastTime;
         }
     }
 
     public void preEvaluationStatistics(final EvolutionState state) {
         super.preEvaluationStatistics(state);
-        boolean output = (Engine.completeGenerationalCount % modulus == 0);
+        boolean output = (state.alps.completeGenerationalCount % modulus == 0);
 
         if (output && doTime) {
             //Runtime r = Runtime.getRuntime();
@@ -277,7 +276,7 @@ public class ALPSShortStatistics extends Statistics {
     public void postEvaluationStatistics(final EvolutionState state) {
         super.postEvaluationStatistics(state);
 
-        boolean output = (Engine.completeGenerationalCount % modulus == 0);
+        boolean output = (state.alps.completeGenerationalCount % modulus == 0);
 
         // gather timings
         if (output && doTime) {
@@ -285,16 +284,16 @@ public class ALPSShortStatistics extends Statistics {
             long curU = r.totalMemory() - r.freeMemory();
             long totalEvalTime = 0;
 
-            for (int index = 0; index < Engine.alps.layers.size(); index++)
+            for (int index = 0; index < state.alps.layers.size(); index++)
                 try {
-                    totalEvalTime += Engine.alps.layers.get(index).evaluationTime;
+                    totalEvalTime += state.alps.layers.get(index).evaluationTime;
                 } catch (ArrayIndexOutOfBoundsException e) {
                 } //do nothing
 
             state.output.print("" + (totalEvalTime) + " ", statisticslog);
 
             //record last evaluation time for layer (moved to ShortStatistics)
-            //Engine.alps.layers.get(Engine.alps.index).evaluationTime = System.currentTimeMillis()-lastTime;
+            //state.alps.layers.get(state.alps.index).evaluationTime = System.currentTimeMillis()-lastTime;
         }
 
         int subpops = state.population.subpops.length;                          // number of supopulations
@@ -314,19 +313,19 @@ public class ALPSShortStatistics extends Statistics {
         //gather per-subpopulation statistics
 
         for (int x = 0; x < subpops; x++) {
-            for (int index = 0; index < Engine.alps.layers.size(); index++) {
+            for (int index = 0; index < state.alps.layers.size(); index++) {
                 try {
-                    minimumAgeThisGen[x] = (long) Engine.alps.layers.get(index).evolutionState.
+                    minimumAgeThisGen[x] = (long) state.alps.layers.get(index).evolutionState.
                             population.subpops[x].individuals[0].age;
-                    maximumAgeThisGen[x] = (long) Engine.alps.layers.get(index).evolutionState.
+                    maximumAgeThisGen[x] = (long) state.alps.layers.get(index).evolutionState.
                             population.subpops[x].individuals[0].age;
 
-                    for (int y = 0; y < Engine.alps.layers.get(index).evolutionState
+                    for (int y = 0; y < state.alps.layers.get(index).evolutionState
                             .population.subpops[x].individuals.length; y++) {
-                        if (Engine.alps.layers.get(index).evolutionState.population.subpops[x].individuals[y].evaluated)               // he's got a valid fitness
+                        if (state.alps.layers.get(index).evolutionState.population.subpops[x].individuals[y].evaluated)               // he's got a valid fitness
                         {
                             // update sizes
-                            long size = Engine.alps.layers.get(index).evolutionState.population.subpops[x].individuals[y].size();
+                            long size = state.alps.layers.get(index).evolutionState.population.subpops[x].individuals[y].size();
                             totalSizeThisGen[x] += size;
                             totalSizeSoFar[x] += size;
                             totalIndsThisGen[x] += 1;
@@ -334,23 +333,23 @@ public class ALPSShortStatistics extends Statistics {
 
                             // update fitness
                             if (bestOfGeneration[x] == null ||
-                                    Engine.alps.layers.get(index).evolutionState.population.subpops[x].individuals[y].fitness.betterThan(bestOfGeneration[x].fitness)) {
-                                bestOfGeneration[x] = Engine.alps.layers.get(index).evolutionState.population.subpops[x].individuals[y];
+                                    state.alps.layers.get(index).evolutionState.population.subpops[x].individuals[y].fitness.betterThan(bestOfGeneration[x].fitness)) {
+                                bestOfGeneration[x] = state.alps.layers.get(index).evolutionState.population.subpops[x].individuals[y];
                                 if (bestSoFar[x] == null || bestOfGeneration[x].fitness.betterThan(bestSoFar[x].fitness))
                                     bestSoFar[x] = (Individual) (bestOfGeneration[x].clone());
                             }
 
                             /*@author anthony */
-                            minimumAgeThisGen[x] = (long) Math.min(minimumAgeThisGen[x], Engine.alps.layers.get(index).evolutionState.population.subpops[x].individuals[y].age);
-                            maximumAgeThisGen[x] = (long) Math.max(maximumAgeThisGen[x], Engine.alps.layers.get(index).evolutionState.population.subpops[x].individuals[y].age);
+                            minimumAgeThisGen[x] = (long) Math.min(minimumAgeThisGen[x], state.alps.layers.get(index).evolutionState.population.subpops[x].individuals[y].age);
+                            maximumAgeThisGen[x] = (long) Math.max(maximumAgeThisGen[x], state.alps.layers.get(index).evolutionState.population.subpops[x].individuals[y].age);
 
-                            totalAgeThisGen[x] += Engine.alps.layers.get(index).evolutionState.population.subpops[x].individuals[y].age;
+                            totalAgeThisGen[x] += state.alps.layers.get(index).evolutionState.population.subpops[x].individuals[y].age;
 
                             // sum up mean fitness for population
-                            totalFitnessThisGen[x] += Engine.alps.layers.get(index).evolutionState.population.subpops[x].individuals[y].fitness.fitness();
+                            totalFitnessThisGen[x] += state.alps.layers.get(index).evolutionState.population.subpops[x].individuals[y].fitness.fitness();
 
                             // hook for KozaShortStatistics etc.
-                            gatherExtraSubpopStatistics(Engine.alps.layers.get(index).evolutionState, x, y);
+                            gatherExtraSubpopStatistics(state.alps.layers.get(index).evolutionState, x, y);
                         }
                     }
                 } catch (ArrayIndexOutOfBoundsException e) {
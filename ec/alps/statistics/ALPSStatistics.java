@@ -2,7 +2,7 @@ package ec.alps.statistics;
 
 import ec.*;
 import ec.EvolutionState;
-import ec.alps.Engine;
+import ec.alps.ALPSEvaluator;
 import ec.alps.util.TreeAnalyzer;
 import ec.simple.SimpleProblemForm;
 import ec.steadystate.*;
@@ -146,10 +146,14 @@ public class ALPSStatistics extends Statistics implements SteadyStateStatisticsF
          * ALPS Stats Modification
          */
         if (doGeneration && NodeStatistics.isALPSEA)
-            state.output.println("\nGeneration: " + Engine.completeGenerationalCount, statisticslog);
+            state.output.println("\nGeneration: " + state.alps.completeGenerationalCount, statisticslog);
         else //when using canonical EA
             state.output.println("\nGeneration: " + state.generation, statisticslog);
 
+        /* fitness cache counters of the run, shared by all layers */
+        if (doGeneration && state.alps != null && state.alps.fitnessCache != null)
+            state.output.println(state.alps.fitnessCache.toString(), statisticslog);
+
 
         /* this is to get the terminals*/
         Map<String, Double> bestIndividualTerminalSet = state.nodeCountTerminalSet;
@@ -201,8 +205,15 @@ public class ALPSStatistics extends Statistics implements SteadyStateStatisticsF
         /* now clear any default values*/
         TreeAnalyzer.unsetNodeCount(state, bestIndividualTerminalSet);
 
+        if (doFinal && state.alps != null && state.alps.fitnessCache != null)
+            state.output.println("\n" + state.alps.fitnessCache.toString(), statisticslog);
+        if (doFinal && state.alps != null && state.alps.budget != null)
+            state.output.println("\n" + state.alps.budget.toString(), statisticslog);
         if (doFinal) state.output.println("\nBest Individual of Run:", statisticslog);
         for (int x = 0; x < state.population.subpops.length; x++) {
+            /* reported on all fitness cases, not on the sample it was found on */
+            if (doFinal && state.evaluator instanceof ALPSEvaluator)
+                ((ALPSEvaluator) state.evaluator).evaluateOnAllCases(state, best_of_run[x], x);
             if (doFinal) state.output.println("Subpopulation " + x + ":", statisticslog);
             /* tree depth */
             if (doFinal) best_of_run[x].individualTreeDepth(state, statisticslog);
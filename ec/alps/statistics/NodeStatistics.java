@@ -138,12 +138,12 @@ public class NodeStatistics extends Statistics implements SteadyStateStatisticsF
          * DONT care if Engine.use_only_default_node_pr is true
          */
         try { //this avoid NullPinterException error when using canonical EA, in which case Layers are not defined
-            if (Engine.alps.index == 0 && Engine.completeGenerationalCount == 0 && !Engine.fsalps_use_only_default_node_pr)
-                for (int l = 1; l < Engine.alps.layers.size(); l++)
-                    //Engine.alps.layers.get(l).evolutionState.nodeCountTerminalSet =
+            if (state.alps.index == 0 && state.alps.completeGenerationalCount == 0 && !state.alps.fsalps_use_only_default_node_pr)
+                for (int l = 1; l < state.alps.layers.size(); l++)
+                    //state.alps.layers.get(l).evolutionState.nodeCountTerminalSet =
                     TreeAnalyzer.unsetNodeCount(
-                            Engine.alps.layers.get(l).evolutionState,
-                            Engine.alps.layers.get(l).evolutionState.nodeCountTerminalSet);
+                            state.alps.layers.get(l).evolutionState,
+                            state.alps.layers.get(l).evolutionState.nodeCountTerminalSet);
         } catch (NullPointerException e) {
             isALPSEA = false;
         }
@@ -181,9 +181,9 @@ public class NodeStatistics extends Statistics implements SteadyStateStatisticsF
         }
         //print the best-of-generation individual
 
-        //if (doGeneration) state.output.print("" + Engine.completeGenerationalCount,statisticslog);
+        //if (doGeneration) state.output.print("" + state.alps.completeGenerationalCount,statisticslog);
         if (doGeneration && isALPSEA)
-            state.output.print(Engine.globalEvaluations + "\t", statisticslog);
+            state.output.print(state.alps.globalEvaluations + "\t", statisticslog);
         else //when using canonical EA
             state.output.print(state.generation + "\t", statisticslog);
 
@@ -3,7 +3,6 @@ package ec.alps.statistics;
 import ec.EvolutionState;
 import ec.Individual;
 import ec.Statistics;
-import ec.alps.Engine;
 import ec.steadystate.SteadyStateStatisticsForm;
 import ec.util.Output;
 import ec.util.Parameter;
@@ -144,7 +143,7 @@ public class SStateShortStatistics extends Statistics implements SteadyStateStat
          */
         //if (output) state.output.print("" + (state.generation + 1) + " ", statisticslog); // 1 because we're putting the breeding info on the same line as the generation it *produces*, and the generation number is increased *after* breeding occurs, and statistics for it
         if (output)
-            state.output.print("" + (Engine.completeGenerationalCount + 1) + " ", statisticslog); // 1 because we're putting the breeding info on the same line as the generation it *produces*, and the generation number is increased *after* breeding occurs, and statistics for it
+            state.output.print("" + (state.alps.completeGenerationalCount + 1) + " ", statisticslog); // 1 because we're putting the breeding info on the same line as the generation it *produces*, and the generation number is increased *after* breeding occurs, and statistics for it
 
         // gather timings
         if (output && doTime) {
@@ -2,7 +2,6 @@ package ec.alps.statistics;
 
 import ec.*;
 import ec.EvolutionState;
-import ec.alps.Engine;
 import ec.util.*;
 
 
@@ -144,7 +143,7 @@ public class ShortStatistics extends Statistics {
 
     public void preInitializationStatistics(final EvolutionState state) {
         super.preInitializationStatistics(state);
-        boolean output = (Engine.completeGenerationalCount % modulus == 0);
+        boolean output = (state.alps.completeGenerationalCount % modulus == 0);
 
         if (output && doTime) {
             // Runtime r = Runtime.getRuntime();
@@ -154,7 +153,7 @@ public class ShortStatistics extends Statistics {
 
     public void postInitializationStatistics(final EvolutionState state) {
         super.postInitializationStatistics(state);
-        boolean output = (Engine.completeGenerationalCount % modulus == 0);
+        boolean output = (state.alps.completeGenerationalCount % modulus == 0);
 
         // set up our bestSoFar array -- can't do this in setup, because
         // we don't know if the number of subpopulations has been determined yet
@@ -162,7 +161,7 @@ public class ShortStatistics extends Statistics {
 
 
         // print out our generation number
-        if (Engine.globalEvaluations == 0 && output)
+        if (state.alps.globalEvaluations == 0 && output)
             state.output.print("0 ", statisticslog);
         else
             state.output.print("", statisticslog);
@@ -176,7 +175,7 @@ public class ShortStatistics extends Statistics {
          * uncoment later - responsible for non-uniform statistics dumps
          * state.output.print("" + (System.currentTimeMillis()-lastTime) + " ",  statisticslog);
          */
-        if (output && doTime && Engine.completeGenerationalCount == 0) {
+        if (output && doTime && state.alps.completeGenerationalCount == 0) {
             //Runtime r = Runtime.getRuntime();
             state.output.print("" + (System.currentTimeMillis() - lastTime) + " ", statisticslog);
         }
@@ -184,7 +183,7 @@ public class ShortStatistics extends Statistics {
 
     public void preBreedingStatistics(final EvolutionState state) {
         super.preBreedingStatistics(state);
-        boolean output = (Engine.completeGenerationalCount % modulus == modulus - 1);
+        boolean output = (state.alps.completeGenerationalCount % modulus == modulus - 1);
         if (output && doTime) {
             //Runtime r = Runtime.getRuntime();
             lastTime = System.currentTimeMillis();
@@ -193,17 +192,17 @@ public class ShortStatistics extends Statistics {
 
     public void postBreedingStatistics(final EvolutionState state) {
         super.postBreedingStatistics(state);
-        boolean output = (Engine.completeGenerationalCount % modulus == modulus - 1);
+        boolean output = (state.alps.completeGenerationalCount % modulus == modulus - 1);
         long initTime = System.currentTimeMillis() - lastTime;
 
         /* @author anthony
          * ALPS Stats Modification
          */
-        //if (output) state.output.print("" + (Engine.completeGenerationalCount + 1) + " ", statisticslog); // 1 because we're putting the breeding info on the same line as the generation it *produces*, and the generation number is increased *after* breeding occurs, and statistics for it
-        //if (output) state.output.print("" + (Engine.completeGenerationalCount + 1) + " ", statisticslog); // 1 because we're putting the breeding info on the same line as the generation it *produces*, and the generation number is increased *after* breeding occurs, and statistics for it
+        //if (output) state.output.print("" + (state.alps.completeGenerationalCount + 1) + " ", statisticslog); // 1 because we're putting the breeding info on the same line as the generation it *produces*, and the generation number is increased *after* breeding occurs, and statistics for it
+        //if (output) state.output.print("" + (state.alps.completeGenerationalCount + 1) + " ", statisticslog); // 1 because we're putting the breeding info on the same line as the generation it *produces*, and the generation number is increased *after* breeding occurs, and statistics for it
 
         if (output)
-            state.output.print("" + (Engine.globalEvaluations + 1) + " ", statisticslog); // 1 because we're putting the breeding info on the same line as the generation it *produces*, and the generation number is increased *after* breeding occurs, and statistics for it
+            state.output.print("" + (state.alps.globalEvaluations + 1) + " ", statisticslog); // 1 because we're putting the breeding info on the same line as the generation it *produces*, and the generation number is increased *after* breeding occurs, and statistics for it
 
 
         // gather timings
@@ -212,13 +211,13 @@ public class ShortStatistics extends Statistics {
             //long curU =  r.totalMemory() - r.freeMemory();
             state.output.print("" + (initTime) + " ", statisticslog);
 
-            Engine.alps.layers.get(Engine.alps.index).initializationTime = initTime;
+            state.alps.layers.get(state.alps.index).initializationTime = initTime;
         }
     }
 
     public void preEvaluationStatistics(final EvolutionState state) {
         super.preEvaluationStatistics(state);
-        boolean output = (Engine.completeGenerationalCount % modulus == 0);
+        boolean output = (state.alps.completeGenerationalCount % modulus == 0);
 
         if (output && doTime) {
             //Runtime r = Runtime.getRuntime();
@@ -258,7 +257,7 @@ public class ShortStatistics extends Statistics {
     public void postEvaluationStatistics(final EvolutionState state) {
         super.postEvaluationStatistics(state);
 
-        boolean output = (Engine.completeGenerationalCount % modulus == 0);
+        boolean output = (state.alps.completeGenerationalCount % modulus == 0);
         long evaltime = System.currentTimeMillis() - lastTime;
         // gather timings
         if (output && doTime) {
@@ -266,7 +265,7 @@ public class ShortStatistics extends Statistics {
             long curU = r.totalMemory() - r.freeMemory();
             state.output.print("" + (evaltime) + " ", statisticslog);
 
-            Engine.alps.layers.get(Engine.alps.index).evaluationTime = evaltime;
+            state.alps.layers.get(state.alps.index).evaluationTime = evaltime;
         }
 
         int subpops = state.population.subpops.length;                          // number of supopulations
@@ -2,11 +2,8 @@ package ec.alps.util;
 
 import ec.EvolutionState;
 import ec.Individual;
-import ec.Initializer;
-import ec.Population;
-import ec.util.Parameter;
 
-import java.util.ArrayList;
+import java.util.BitSet;
 
 /**
  * @author Anthony Awuley
@@ -23,54 +20,24 @@ public class Operations {
      * @return
      */
     public static Individual[] emptyPop(Individual[] individuals) {
-        ArrayList<Individual> dummy = listArrayAdaptor(individuals);
-        @SuppressWarnings("unchecked")
-        ArrayList<Individual> deleteList = (ArrayList<Individual>) dummy.clone();
-
-        for (int id = 0; id < deleteList.size(); id++)
-            dummy.remove(deleteList.get(id));
-
-        return arrayListAdaptor(dummy);
+        return new Individual[0];
     }
 
     /**
-     * this deletes deletesList from subpopulation individuals
+     * Removes the individuals at the marked positions in a single pass, keeping the order of the others.
+     * Migration used to remove individuals one by one with ArrayList.remove(Object), which is quadratic in the
+     * size of the subpopulation and compares whole trees through Individual.equals(...)
      *
      * @param individuals individuals in a subpopulation
-     * @param deleteList  arrayList to delete
-     * @return
-     */
-    public static Individual[] emptyPop(Individual[] individuals, ArrayList<Individual> deleteList) {
-        ArrayList<Individual> dummy = listArrayAdaptor(individuals);
-        for (int id = 0; id < deleteList.size(); id++)
-            dummy.remove(deleteList.get(id));
-
-        return arrayListAdaptor(dummy);
-    }
-
-
-    /**
-     * @param Individuals
-     * @return
+     * @param removed     positions to remove
+     * @return the remaining individuals
      */
-    private static ArrayList<Individual> listArrayAdaptor(Individual[] individuals) {
-        ArrayList<Individual> list = new ArrayList<>();
-        for (Individual i : individuals)
-            list.add(i);
-        return list;
-    }
-
-
-    /**
-     * @param individuals
-     * @return
-     */
-    private static Individual[] arrayListAdaptor(ArrayList<Individual> individuals) {
-        Individual[] list = new Individual[individuals.size()];
-        for (int i = 0; i < individuals.size(); i++)
-            list[i] = individuals.get(i);
-
-        return list;
+    public static Individual[] compact(Individual[] individuals, BitSet removed) {
+        Individual[] kept = new Individual[individuals.length - removed.get(0, individuals.length).cardinality()];
+        int k = 0;
+        for (int i = removed.nextClearBit(0); i < individuals.length; i = removed.nextClearBit(i + 1))
+            kept[k++] = individuals[i];
+        return kept;
     }
 
 
@@ -99,13 +66,7 @@ public class Operations {
      * @return total parameter population size for all subpopulations
      */
     public static int expectedPopulation(EvolutionState state) {
-        int total = 0;
-        for (int sub = 0; sub < state.population.subpops.length; sub++) {
-            total += state.parameters.getInt(new Parameter(Initializer.P_POP).
-                    push(Population.P_SUBPOP).push(sub + "").push(POP_SIZE), null);
-        }
-
-        return total;
+        return state.alps.config.expectedPopulation(state.population.subpops.length);
 
     }
 
@@ -2,7 +2,6 @@ package ec.alps.vector.breed;
 
 import ec.*;
 import ec.EvolutionState;
-import ec.alps.Engine;
 import ec.util.*;
 import ec.vector.*;
 import ec.vector.breed.VectorCrossoverPipeline;
@@ -27,7 +26,6 @@ import ec.vector.breed.VectorCrossoverPipeline;
  */
 public class VectorCrossover extends VectorCrossoverPipeline {
 
-    private final String ALPS_SELECTION_PRESSURE = "alps.selection-pressure";
     /**
      * Temporary holding place for alps parent selection
      */
@@ -42,7 +40,7 @@ public class VectorCrossover extends VectorCrossoverPipeline {
                        final int thread)
 
     {
-        double selctionPressure = state.parameters.getDouble(new Parameter(ALPS_SELECTION_PRESSURE), null);
+        double selctionPressure = state.alps.config.selectionPressure;
 
         // how many individuals should we make?
         int n = typicalIndsProduced();
@@ -58,7 +56,7 @@ public class VectorCrossover extends VectorCrossoverPipeline {
             // grab two individuals from our sources
             if (sources[0] == sources[1])  // grab from the same source
             {
-                if (Engine.alps.layers.get(Engine.alps.index).getIsBottomLayer()) {
+                if (state.alps.layers.get(state.alps.index).getIsBottomLayer()) {
                     sources[0].produce(2, 2, 0, subpopulation, parents, state, thread);
                 } else {
                     for (int u = 0; u <= 1; u++) {
@@ -70,12 +68,12 @@ public class VectorCrossover extends VectorCrossoverPipeline {
                         alpsParents = parents.clone();
 
                         //perform selection from current population if previous population is empty
-                        if ((state.random[0].nextDouble() <= selctionPressure) ||
-                                Engine.alps.layers.get(Engine.alps.index - 1).evolutionState.population.subpops[0].individuals.length == 0) {
+                        if ((state.random[thread].nextDouble() <= selctionPressure) ||
+                                state.alps.layers.get(state.alps.index - 1).evolutionState.population.subpops[0].individuals.length == 0) {
                             sources[0].produce(2, 2, 0, subpopulation, parents, state, thread);
                         } else {
                             sources[0].produce(2, 2, 0, subpopulation, parents,
-                                    Engine.alps.layers.get(Engine.alps.index - 1).evolutionState, thread);
+                                    state.alps.layers.get(state.alps.index - 1).evolutionState, thread);
                         }
                     }
 
@@ -102,19 +100,19 @@ public class VectorCrossover extends VectorCrossoverPipeline {
                 for (int u = 0; u <= 1; u++) {
                     alpsParents = parents.clone(); //stores parents of first selection on second loop
 
-                    if (Engine.alps.layers.get(Engine.alps.index).getIsBottomLayer()) {
+                    if (state.alps.layers.get(state.alps.index).getIsBottomLayer()) {
                         sources[0].produce(1, 1, 0, subpopulation, parents, state, thread);
                         sources[1].produce(1, 1, 1, subpopulation, parents, state, thread);
                     } else {
-                        if ((state.random[0].nextDouble() <= selctionPressure) ||
-                                Engine.alps.layers.get(Engine.alps.index - 1).evolutionState.population.subpops[0].individuals.length <= 0) {
+                        if ((state.random[thread].nextDouble() <= selctionPressure) ||
+                                state.alps.layers.get(state.alps.index - 1).evolutionState.population.subpops[0].individuals.length <= 0) {
                             sources[0].produce(1, 1, 0, subpopulation, parents, state, thread);
                             sources[1].produce(1, 1, 1, subpopulation, parents, state, thread);
                         } else {
                             sources[0].produce(1, 1, 0, subpopulation, parents,
-                                    Engine.alps.layers.get(Engine.alps.index - 1).evolutionState, thread);
+                                    state.alps.layers.get(state.alps.index - 1).evolutionState, thread);
                             sources[1].produce(1, 1, 1, subpopulation, parents,
-                                    Engine.alps.layers.get(Engine.alps.index - 1).evolutionState, thread);
+                                    state.alps.layers.get(state.alps.index - 1).evolutionState, thread);
                         }
                     }
                 }
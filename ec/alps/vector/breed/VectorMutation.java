@@ -2,7 +2,6 @@ package ec.alps.vector.breed;
 
 import ec.*;
 import ec.EvolutionState;
-import ec.alps.Engine;
 import ec.util.*;
 import ec.vector.*;
 import ec.vector.breed.VectorMutationPipeline;
@@ -25,7 +24,6 @@ import ec.vector.breed.VectorMutationPipeline;
  */
 public class VectorMutation extends VectorMutationPipeline {
 
-    private final String ALPS_SELECTION_PRESSURE = "alps.selection-pressure";
 
 
     public int produce(final int min,
@@ -37,13 +35,13 @@ public class VectorMutation extends VectorMutationPipeline {
                        final int thread) {
 
 
-        double slectionPressure = state.parameters.getDouble(new Parameter(ALPS_SELECTION_PRESSURE), null);
+        double slectionPressure = state.alps.config.selectionPressure;
         int n;
 
 
-        if (Engine.alps.layers.get(Engine.alps.index).getIsBottomLayer() ||
-                state.random[0].nextDouble() <= slectionPressure ||
-                Engine.alps.layers.get(Engine.alps.index - 1).evolutionState.population.subpops[0].individuals.length == 0) {
+        if (state.alps.layers.get(state.alps.index).getIsBottomLayer() ||
+                state.random[thread].nextDouble() <= slectionPressure ||
+                state.alps.layers.get(state.alps.index - 1).evolutionState.population.subpops[0].individuals.length == 0) {
             // grab individuals from our source and stick 'em right into inds.
             // we'll modify them from there
             n = sources[0].produce(min, max, start, subpopulation, inds, state, thread);
@@ -57,12 +55,12 @@ public class VectorMutation extends VectorMutationPipeline {
             // grab individuals from our source and stick 'em right into inds.
             // we'll modify them from there
             n = sources[0].produce(min, max, start, subpopulation, inds,
-                    Engine.alps.layers.get(Engine.alps.index - 1).evolutionState, thread);
+                    state.alps.layers.get(state.alps.index - 1).evolutionState, thread);
 
             // should we bother?
             if (!state.random[thread].nextBoolean(likelihood))
                 return reproduce(n, start, subpopulation, inds,
-                        Engine.alps.layers.get(Engine.alps.index - 1).evolutionState, thread, false);  // DON'T produce children from source -- we already did
+                        state.alps.layers.get(state.alps.index - 1).evolutionState, thread, false);  // DON'T produce children from source -- we already did
 
         }
 
@@ -9,12 +9,56 @@ package ec.app.alps.tutorial2;
 
 import ec.gp.*;
 
+import java.util.Arrays;
+
 public class DoubleData extends GPData {
     public double x;    // return value
 
+    /**
+     * number of fitness cases evaluated at once, 0 (default) to evaluate one case at a time in x
+     */
+    public int numCases = 0;
+    /**
+     * batched return value: the result of every fitness case, one of the buffers handed out by push()
+     */
+    public double[] values;
+    /** */
+    private double[][] buffers = new double[0][];
+    /** */
+    private int top = 0;
+
+    /**
+     * Hands out a buffer of numCases results. Nodes take one for their own result and give back the
+     * buffers of their children with pop(), so buffers are reused depth by depth instead of allocated per node.
+     */
+    public double[] push() {
+        if (top == buffers.length)
+            buffers = Arrays.copyOf(buffers, top + 8);
+        if (buffers[top] == null || buffers[top].length < numCases)
+            buffers[top] = new double[numCases];
+        return buffers[top++];
+    }
+
+    /**
+     * gives back the buffer handed out last
+     */
+    public void pop() {
+        top--;
+    }
+
     public void copyTo(final GPData gpd)   // copy my stuff to another DoubleData
     {
         ((DoubleData) gpd).x = x;
+        ((DoubleData) gpd).numCases = numCases;
+        ((DoubleData) gpd).values = values;
+    }
+
+    public Object clone() {
+        DoubleData d = (DoubleData) (super.clone());
+        d.buffers = new double[0][];  // every clone (i.e. every evaluation thread) has its own buffers
+        d.top = 0;
+        d.values = null;
+        return d;
     }
 }
 
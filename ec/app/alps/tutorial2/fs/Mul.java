@@ -8,11 +8,12 @@
 package ec.app.alps.tutorial2.fs;
 
 import ec.*;
+import ec.alps.gp.PostfixNode;
 import ec.app.alps.tutorial2.DoubleData;
 import ec.gp.*;
 import ec.util.*;
 
-public class Mul extends GPNode {
+public class Mul extends GPNode implements PostfixNode {
     public String toString() {
         return "*";
     }
@@ -34,6 +35,18 @@ public class Mul extends GPNode {
         return 2;
     }
 
+    public int postfixOpcode() {
+        return OP_MUL;
+    }
+
+    public int postfixOperand() {
+        return 0;
+    }
+
+    public double postfixConstant() {
+        return 0;
+    }
+
     public void eval(final EvolutionState state,
                      final int thread,
                      final GPData input,
@@ -43,6 +56,19 @@ public class Mul extends GPNode {
         double result;
         DoubleData rd = ((DoubleData) (input));
 
+        if (rd.numCases > 0) {  // all fitness cases in one traversal
+            children[0].eval(state, thread, input, stack, individual, problem);
+            double[] left = rd.values;
+
+            children[1].eval(state, thread, input, stack, individual, problem);
+            double[] right = rd.values;
+            for (int i = 0; i < rd.numCases; i++)
+                left[i] *= right[i];
+            rd.pop();
+            rd.values = left;
+            return;
+        }
+
         children[0].eval(state, thread, input, stack, individual, problem);
         result = rd.x;
 
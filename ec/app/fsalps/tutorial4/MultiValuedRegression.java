@@ -8,16 +8,30 @@
 package ec.app.fsalps.tutorial4;
 
 import ec.*;
+import ec.alps.gp.RegressionProblem;
 import ec.gp.*;
-import ec.gp.koza.*;
-import ec.simple.SimpleProblemForm;
 import ec.util.*;
 
-public class MultiValuedRegression extends GPProblem implements SimpleProblemForm {
+/**
+ * Finds x*x*y + x*y + y. Evaluation, including the ALPS options (compile, batch, postfix, dataset, fixed-cases,
+ * sample-size, memo-budget), is done by RegressionProblem; this class only connects it to the X and Y terminals
+ * and to DoubleData.
+ */
+public class MultiValuedRegression extends RegressionProblem {
     private static final long serialVersionUID = 1;
+    /**
+     * variable indices used by the PostfixNode terminals X and Y
+     */
+    public static final int VARIABLE_X = 0;
+    public static final int VARIABLE_Y = 1;
 
     public double currentX;
     public double currentY;
+    /**
+     * x and y of every fitness case, read by X and Y in batched mode
+     */
+    public double[] currentXs;
+    public double[] currentYs;
 
     public void setup(final EvolutionState state, final Parameter base) {
         super.setup(state, base);
@@ -28,35 +42,38 @@ public class MultiValuedRegression extends GPProblem implements SimpleProblemFor
                     base.push(P_DATA), null);
     }
 
-    public void evaluate(final EvolutionState state, final Individual ind, final int subpopulation, final int threadnum) {
-        if (!ind.evaluated)  // don't bother reevaluating
-        {
-            DoubleData input = (DoubleData) (this.input);
-
-            int hits = 0;
-            double sum = 0.0;
-            double expectedResult;
-            double result;
-            for (int y = 0; y < 10; y++) {
-                currentX = state.random[threadnum].nextDouble();
-                currentY = state.random[threadnum].nextDouble();
-
-                expectedResult = currentX * currentX * currentY + currentX * currentY + currentY;
-
-                ((GPIndividual) ind).trees[0].child.eval(
-                        state, threadnum, input, stack, ((GPIndividual) ind), this);
-
-                result = Math.abs(expectedResult - input.x);
-                if (result <= 0.01) hits++;
-                sum += result;
-            }
-
-            // the fitness better be KozaFitness!
-            KozaFitness f = ((KozaFitness) ind.fitness);
-            f.setStandardizedFitness(state, sum);
-            f.hits = hits;
-            ind.evaluated = true;
-        }
+    protected String[] variableNames() {
+        return new String[]{"x", "y"};
+    }
+
+    /**
+     * the function to be found
+     */
+    protected double target(double[] point) {
+        double x = point[VARIABLE_X];
+        double y = point[VARIABLE_Y];
+        return x * x * y + x * y + y;
     }
-}
 
+    protected double evalCase(final EvolutionState state, final int threadnum, final GPIndividual ind,
+                              final double[] point) {
+        DoubleData input = (DoubleData) (this.input);
+        currentX = point[VARIABLE_X];
+        currentY = point[VARIABLE_Y];
+        ind.trees[0].child.eval(state, threadnum, input, stack, ind, this);
+        return input.x;
+    }
+
+    protected double[] evalBatch(final EvolutionState state, final int threadnum, final GPIndividual ind,
+                                 final double[][] variables, final int numCases) {
+        DoubleData input = (DoubleData) (this.input);
+        currentXs = variables[VARIABLE_X];
+        currentYs = variables[VARIABLE_Y];
+        input.numCases = numCases;
+        ind.trees[0].child.eval(state, threadnum, input, stack, ind, this);
+        double[] results = input.values;
+        input.pop();
+        input.numCases = 0;
+        return results;
+    }
+}
@@ -8,12 +8,13 @@
 package ec.app.fsalps.tutorial4.ts;
 
 import ec.*;
+import ec.alps.gp.PostfixNode;
 import ec.app.fsalps.tutorial4.DoubleData;
 import ec.app.fsalps.tutorial4.MultiValuedRegression;
 import ec.gp.*;
 import ec.util.*;
 
-public class Y extends GPNode {
+public class Y extends GPNode implements PostfixNode {
     public String toString() {
         return "y";
     }
@@ -35,6 +36,18 @@ public class Y extends GPNode {
         return 0;
     }
 
+    public int postfixOpcode() {
+        return OP_VARIABLE;
+    }
+
+    public int postfixOperand() {
+        return MultiValuedRegression.VARIABLE_Y;
+    }
+
+    public double postfixConstant() {
+        return 0;
+    }
+
     public void eval(final EvolutionState state,
                      final int thread,
                      final GPData input,
@@ -42,6 +55,11 @@ public class Y extends GPNode {
                      final GPIndividual individual,
                      final Problem problem) {
         DoubleData rd = ((DoubleData) (input));
+        if (rd.numCases > 0) {  // all fitness cases in one traversal
+            rd.values = rd.push();
+            System.arraycopy(((MultiValuedRegression) problem).currentYs, 0, rd.values, 0, rd.numCases);
+            return;
+        }
         rd.x = ((MultiValuedRegression) problem).currentY;
     }
 }
@@ -9,7 +9,6 @@ package ec.fsalps;
 
 import ec.*;
 import ec.EvolutionState;
-import ec.alps.Engine;
 import ec.gp.*;
 import ec.util.*;
 
@@ -110,25 +109,25 @@ public class FSALPSGPFunctionSet extends GPFunctionSet {
             /** build a map of node to frequency count: initial assignment is based on default settings */
             if (gpfi.children.length == 0 /*gpfi.expectedChildren()==0*/)
                 /*
-                 * Engine.nodeCountTerminalSet.put(gpfi.toString(), state.parameters.getInt(pp.push(P_PROB),null,1));
+                 * state.alps.nodeCountTerminalSet.put(gpfi.toString(), state.parameters.getInt(pp.push(P_PROB),null,1));
                  * Not using gpfi.toString() in the event that multiple nodes have the same gpfi.toString() name
                  * The class name however, is guaranteed to always be the same.
                  */
-                if (Engine.fsalps_use_only_default_node_pr || Engine.completeGenerationalCount == 0) {
+                if (state.alps.fsalps_use_only_default_node_pr || state.alps.completeGenerationalCount == 0) {
                     /* This is done during setup,
-                     * Engine.nodeCountTerminalSet holds terminals with the default frequency settings
-                     * NB: This is never modified if Engine.fsalps_use_only_default_node_pr is true */
-                    Engine.nodeCountTerminalSet.put(gpfi.getClass().getName(), (double) state.parameters.getInt(pp.push(P_PROB), null, 1));
+                     * state.alps.nodeCountTerminalSet holds terminals with the default frequency settings
+                     * NB: This is never modified if state.alps.fsalps_use_only_default_node_pr is true */
+                    state.alps.nodeCountTerminalSet.put(gpfi.getClass().getName(), (double) state.parameters.getInt(pp.push(P_PROB), null, 1));
                     /* This is used to setup available nodes and their default frequencies
                      * Values are modified in NodeStatitics when every EvolutionState counts terminal usage
                      * in its trees*/
                     state.nodeCountTerminalSet.put(gpfi.getClass().getName(), (double) state.parameters.getInt(pp.push(P_PROB), null, 1));
                 }
 				/*
-				else if (Engine.completeGenerationalCount==0) //perform assigment only at generation 0
+				else if (state.alps.completeGenerationalCount==0) //perform assigment only at generation 0
 				{   
 					state.nodeCountTerminalSet.put(gpfi.getClass().getName(), (double) state.parameters.getInt(pp.push(P_PROB),null,1));
-					Engine.nodeCountTerminalSet.put(gpfi.getClass().getName(), (double) state.parameters.getInt(pp.push(P_PROB),null,1));
+					state.alps.nodeCountTerminalSet.put(gpfi.getClass().getName(), (double) state.parameters.getInt(pp.push(P_PROB),null,1));
 				}*/
 
 
@@ -1,7 +1,6 @@
 package ec.fsalps;
 
 import ec.EvolutionState;
-import ec.alps.Engine;
 import ec.alps.layers.ALPSLayers;
 import ec.util.Parameter;
 
@@ -71,12 +70,12 @@ public abstract class Roulette {
      */
     public void layerFrequencySelection(ALPSLayers alps, EvolutionState state) {
 
-        try {   //Avoid Engine.alps.layers exception when alps.layers have not been set up
-            if (Engine.fsalps_count_all_layers) {   /* Obtain initial node, value pairs from last layer */
+        try {   //Avoid alps.layers exception when alps.layers have not been set up
+            if (alps.fsalps_count_all_layers) {   /* Obtain initial node, value pairs from last layer */
                 map = alps.layers.get(0).evolutionState.nodeCountTerminalSet;
                 /* loop through remaining layers and add respective node frequency counts */
-                for (int i = 1; i < Engine.alps.layers.size(); i++)
-                    for (Entry<String, Double> node : Engine.alps.layers.get(i).evolutionState.nodeCountTerminalSet.entrySet())
+                for (int i = 1; i < alps.layers.size(); i++)
+                    for (Entry<String, Double> node : alps.layers.get(i).evolutionState.nodeCountTerminalSet.entrySet())
                         map.put(node.getKey(), node.getValue() + map.get(node.getKey()));
                 //System.out.println("ENGINE "+i + " "+ node.getKey() + ": "+ node.getValue()+" TOTAL:"+ map.get(node.getKey()));
             } else { /*use last layer */
@@ -87,11 +86,11 @@ public abstract class Roulette {
             map = state.nodeCountTerminalSet;
         }
 
-        /* When Engine.fsalps_use_only_default_node_pr is "true", only default node probabilities are used
+        /* When alps.fsalps_use_only_default_node_pr is "true", only default node probabilities are used
          * note that values set for each node are converted to probabilities
          * this assignment overrites all operations performed in the try{..} catch(...){...} above  */
-        if (Engine.fsalps_use_only_default_node_pr)
-            map = Engine.nodeCountTerminalSet;
+        if (alps.fsalps_use_only_default_node_pr)
+            map = alps.nodeCountTerminalSet;
 
         convertFreqToProb();
     }
@@ -105,7 +104,7 @@ public abstract class Roulette {
 
         convertFreqToProb();
 
-        Engine.roulette = this;
+        alps.roulette = this;
     }
 
     /**
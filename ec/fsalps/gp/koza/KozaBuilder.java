@@ -84,30 +84,30 @@ public abstract class KozaBuilder extends GPNodeBuilder {
                     base.push(P_MAXDEPTH), def.push(P_MAXDEPTH));
 
         //p=new Parameter(P_ROULETTE);
-        //Engine.roulette = (Roulette)
+        //state.alps.roulette = (Roulette)
         //(base.getInstanceForParameter(FSALPS.defaultBase().push(P_ROULETTE),null,Roulette.class));
-        //Engine.roulette.setup(state,FSALPS.defaultBase().push(P_ROULETTE));
+        //state.alps.roulette.setup(state,FSALPS.defaultBase().push(P_ROULETTE));
 
         /*
          * FSALPS
          * Setting up roulette selection
          * NOTE: The initialization heare is performed once and modified subseuently in EvolutionState if
-         * the parameter Engine.fsalps_use_only_default_node_pr is false.
-         * Else the roulette probability distribution performed at Engine.completeGenerationalCount==0 is used
+         * the parameter state.alps.fsalps_use_only_default_node_pr is false.
+         * Else the roulette probability distribution performed at state.alps.completeGenerationalCount==0 is used
          * throughout the entire generation
          *
          * ***when Engine.fsalps_use_all_layers is true, the entire population is analyzed and used to generate
          * ***probablity data anytime a restart is initiated
          *
-         * Engine.completeGenerationalCount==0 || Engine.fsalps_use_all_layers is used, it could interferre with evolution
+         * state.alps.completeGenerationalCount==0 || Engine.fsalps_use_all_layers is used, it could interferre with evolution
          * especialy when some nodes are eliminated in layer 0 and layer 1 during early stages of evolution.
          * Otherwise, uniform probability is used untill individuals are present in last layer -- MOST PREFERED
          *
          * @author anthony
          */
-        if (Engine.completeGenerationalCount == 0 /*|| Engine.fsalps_use_all_layers*/)
-            Engine.roulette.calculateNodeProbabilities(Engine.alps, state);
-        //Engine.roulette = new Roulette(Engine.alps,state);
+        if (state.alps.completeGenerationalCount == 0 /*|| Engine.fsalps_use_all_layers*/)
+            state.alps.roulette.calculateNodeProbabilities(state.alps, state);
+        //state.alps.roulette = new Roulette(state.alps,state);
 
 
     }
@@ -150,7 +150,7 @@ public abstract class KozaBuilder extends GPNodeBuilder {
              * @author anthony
              * use roulette to pick a terminal
              * GPNode n = (GPNode)(terminals[state.random[thread].nextInt(terminals.length)].lightClone());     //DEFAULT GP
-             * GPNode n = (GPNode)(terminals[Engine.roulette.spin(state.random[thread].nextDouble())].lightClone()); //FSALPS
+             * GPNode n = (GPNode)(terminals[state.alps.roulette.spin(state.random[thread].nextDouble())].lightClone()); //FSALPS
              */
             GPNode n = selectNodeFSALPSInit(state, terminals, thread);
 
@@ -223,7 +223,7 @@ public abstract class KozaBuilder extends GPNodeBuilder {
              * @author anthony
              * use roulette to pick a terminal
              * GPNode n = (GPNode)(terminals[state.random[thread].nextInt(terminals.length)].lightClone());          //DEFAULT GP
-             * GPNode n = (GPNode)(terminals[Engine.roulette.spin(state.random[thread].nextDouble())].lightClone()); //FSALPS
+             * GPNode n = (GPNode)(terminals[state.alps.roulette.spin(state.random[thread].nextDouble())].lightClone()); //FSALPS
              */
             GPNode n = selectNodeFSALPSInit(state, terminals, thread);
 
@@ -250,7 +250,7 @@ public abstract class KozaBuilder extends GPNodeBuilder {
              */
             if (n.children.length == 0 /*n.expectedChildren()==0*/)
                 n = selectNodeFSALPSInit(state, terminals, thread);
-            //n = (GPNode)(nodes[Engine.roulette.spin(state.random[thread].nextDouble())].lightClone());
+            //n = (GPNode)(nodes[state.alps.roulette.spin(state.random[thread].nextDouble())].lightClone());
 
             n.resetNode(state, thread);  // give ERCs a chance to randomize
             n.argposition = (byte) argposition;
@@ -267,7 +267,7 @@ public abstract class KozaBuilder extends GPNodeBuilder {
 
     /**
      * used to perform FSALPS node selection for full and grow tree generation.
-     * a parameter Engine.fsalps_use_mutation is used to determine if evolved frequency count should be used in
+     * a parameter state.alps.fsalps_use_mutation is used to determine if evolved frequency count should be used in
      * deciding mutation node selection. When set to true, evolved tree count is used in selecting nodes during mutation
      * and initialization of trees when creating new population.
      *
@@ -285,16 +285,16 @@ public abstract class KozaBuilder extends GPNodeBuilder {
         GPNode n;
 
         /* If this is true, normal FSALPS node selection is applied during mutation and at initialiazation of individuals in a population */
-        if (Engine.fsalps_use_mutation)
-            n = (GPNode) (terminals[Engine.roulette.spin(state.random[thread].nextDouble())].lightClone());
+        if (state.alps.fsalps_use_mutation)
+            n = (GPNode) (terminals[state.alps.roulette.spin(state.random[thread].nextDouble())].lightClone());
         else {
             try {        /* Re initialization of population in layer 0 */
-                if (Engine.alps.index == 0 && Engine.alps.layers.get(Engine.alps.index).initializerFlag)
-                    n = (GPNode) (terminals[Engine.roulette.spin(state.random[thread].nextDouble())].lightClone());
+                if (state.alps.index == 0 && state.alps.layers.get(state.alps.index).initializerFlag)
+                    n = (GPNode) (terminals[state.alps.roulette.spin(state.random[thread].nextDouble())].lightClone());
                 else /* Randomly choose nodes for mutation without FSALPS frequenccy genrated probablity */
                     n = (GPNode) (terminals[state.random[thread].nextInt(terminals.length)].lightClone());
             } catch (NullPointerException e) {        /* first initialization of population at the very start of evolution when alps layers have not been initialized */
-                n = (GPNode) (terminals[Engine.roulette.spin(state.random[thread].nextDouble())].lightClone());
+                n = (GPNode) (terminals[state.alps.roulette.spin(state.random[thread].nextDouble())].lightClone());
             }
         }
         return n;
@@ -302,7 +302,7 @@ public abstract class KozaBuilder extends GPNodeBuilder {
 
 
     /**
-     * This implementation assumes the non-existence of Engine.fsalps_use_mutation and rather
+     * This implementation assumes the non-existence of state.alps.fsalps_use_mutation and rather
      * relies on ec.alps.gp.koza.GrowBuilder or ec.gp.koza.GrowBuilder setting of for mutation parameter
      * "gp.koza.mutate.build.0" to determine if FSALPS is used to influence mutation or not.
      * <p>
@@ -319,7 +319,7 @@ public abstract class KozaBuilder extends GPNodeBuilder {
      * @author anthony
      */
     private GPNode selectNodeFSALPSInit(EvolutionState state, GPNode[] terminals, int thread) {
-        return (GPNode) (terminals[Engine.roulette.spin
+        return (GPNode) (terminals[state.alps.roulette.spin
                 (state.random[thread].nextDouble())].lightClone());
     }
 
@@ -133,6 +133,8 @@ public class Engine extends Evolve {
 
 	/** aging scheme */
 	public static AgingScheme       ageScheme;
+	/** settings resolved once in setup */
+	public static ALPSConfig        config;
 	private static ArrayList<Layer> alpsLayers;
 
 	public Engine(String[] args,int job,ParameterDatabase parameters ) 
@@ -263,6 +265,7 @@ public class Engine extends Evolve {
 
 
 		numGenerations  = parameters.getInt(new Parameter(EvolutionState.P_GENERATIONS), null);
+		config          = ALPSConfig.resolve(parameters);
 
 		if (!parameters.exists(base().push(AGE_ONLY_CURRENT_LAYER), null))
 			System.out.println("default value for  "
@@ -37,8 +37,6 @@ public class Crossover extends CrossoverPipeline{
 	/** Temporary holding place for alps parent selection */
 	private GPIndividual alpsParents[];
 
-	private final String SELECTION_PRESSURE = "selection-pressure";
-
 
 	public int produce(final int min, 
 			final int max, 
@@ -54,7 +52,7 @@ public class Crossover extends CrossoverPipeline{
 
 
 
-		double selectionPressure = state.parameters.getDouble(Engine.base().push(SELECTION_PRESSURE), null);
+		double selectionPressure = Engine.config.selectionPressure;
 
 
 		// how many individuals should we make?
@@ -30,8 +30,6 @@ public class Mutation extends MutationPipeline {
 	 */
 	private static final long serialVersionUID = 1;
 
-	private final String SELECTION_PRESSURE = "selection-pressure";
-
 
 	public int produce(final int min, 
 			final int max, 
@@ -43,7 +41,7 @@ public class Mutation extends MutationPipeline {
 	{ 
 		int start = inds.size();
 
-		double selectionPressure = state.parameters.getDouble(Engine.base().push(SELECTION_PRESSURE), null);
+		double selectionPressure = Engine.config.selectionPressure;
 
 		int n;
 		
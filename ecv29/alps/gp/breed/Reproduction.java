@@ -22,8 +22,6 @@ public class Reproduction extends ReproductionPipeline{
 	
     /** */
 	private static final long serialVersionUID = 1;
-	
-	private final String SELECTION_PRESSURE = "selection-pressure";
 
 	public int produce(
             final int min, 
@@ -36,7 +34,7 @@ public class Reproduction extends ReproductionPipeline{
 			final HashMap<String,Object> misc) 
             {
     	
-		    double selectionPressure = state.parameters.getDouble(Engine.base().push(SELECTION_PRESSURE), null);
+		    double selectionPressure = Engine.config.selectionPressure;
 
     	    int n;
     	    
@@ -4,7 +4,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 
 import ec.Individual;
-import ec.Initializer;
 import ec.Population;
 import ec.alps.Engine;
 import ec.EvolutionState;
@@ -119,9 +118,7 @@ public abstract class Replacement extends TournamentSelection {
 		for(int sub=0;sub<alps.layers.get(alps.index).evolutionState.population.subpops.size();sub++)
 		{
 			/** total number of populations expected */
-			int size = alps.layers.get(alps.index).evolutionState.
-					parameters.getInt(new Parameter(Initializer.P_POP).
-							push(Population.P_SUBPOP).push(sub+"").push(POP_SIZE),null);
+			int size = Engine.config.subpopSize(sub);
 
 			
 			if(alps.index == (alps.layers.size() - 1))
@@ -333,7 +330,7 @@ public abstract class Replacement extends TournamentSelection {
 		int worst = getRandomIndividual(0, subpopulation, state, thread);
 
 		// int s = getTournamentSizeToUse(state.random[thread]); //was not picking system set tournament selection
-		int s = state.parameters.getInt(Engine.base().push(ALPS_TOURNAMENT_SIZE),null);
+		int s = Engine.config.tournamentSize;
 
 		for (int x = 1; x < s; x++) {
 			int j = getRandomIndividual(x, subpopulation, state, thread);
@@ -362,7 +359,7 @@ public abstract class Replacement extends TournamentSelection {
 		int best = getRandomIndividual(0, subpopulation, state, thread);
 
 		// int s = getTournamentSizeToUse(state.random[thread]); //was not picking system set tournament selection
-		int s = state.parameters.getInt(Engine.base().push(ALPS_TOURNAMENT_SIZE),null);
+		int s = Engine.config.tournamentSize;
 
 		for (int x = 1; x < s; x++) {
 			int j = getRandomIndividual(x, subpopulation, state, thread);
@@ -392,8 +389,7 @@ public abstract class Replacement extends TournamentSelection {
 		ArrayList<Individual> oldinds = state.population.subpops.get(subpopulation).individuals;
 		double fitness = newIndividual.fitness.fitness();
 
-		int s = state.parameters.getInt(Engine.base().push(ALPS_TOURNAMENT_SIZE),
-				null);
+		int s = Engine.config.tournamentSize;
 
 		for (int x = 1; x < s; x++) {
 			int j = getRandomIndividual(x, subpopulation, state, thread);
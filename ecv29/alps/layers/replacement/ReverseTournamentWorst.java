@@ -3,13 +3,11 @@ package ec.alps.layers.replacement;
 import java.util.ArrayList;
 
 import ec.Individual;
-import ec.Initializer;
 import ec.Population;
 import ec.alps.Engine;
 import ec.alps.layers.ALPSLayers;
 import ec.alps.layers.Replacement;
 import ec.alps.util.Operations;
-import ec.util.Parameter;
 
 
 /**
@@ -55,9 +53,7 @@ public class ReverseTournamentWorst  extends Replacement{
 			for(int subpopulation=0;subpopulation<alps.layers.get(alps.index).evolutionState.population.subpops.size();subpopulation++)
 			{
 				/* total number of populations expected */
-				int size = alps.layers.get(alps.index).evolutionState.
-						parameters.getInt(new Parameter(Initializer.P_POP).
-								push(Population.P_SUBPOP).push(subpopulation+"").push(POP_SIZE),null);
+				int size = Engine.config.subpopSize(subpopulation);
 
 
 				/* initialize number of individuals added  */
@@ -4,10 +4,8 @@ import java.util.ArrayList;
 
 import ec.EvolutionState;
 import ec.Individual;
-import ec.Initializer;
-import ec.Population;
 import ec.EvolutionState;
-import ec.util.Parameter;
+import ec.alps.Engine;
 
 /**
  * 
@@ -110,12 +108,7 @@ public class Operations {
 	 */
 	public static int expectedPopulation(EvolutionState state)
 	{
-		int total = 0;
-		for(int sub=0;sub<state.population.subpops.size();sub++)
-			total +=state.parameters.getInt(new Parameter(Initializer.P_POP).
-					push(Population.P_SUBPOP).push(sub+"").push(POP_SIZE),null);
-		
-		return total;
+		return Engine.config.expectedPopulation(state.population.subpops.size());
 
 	}
 	
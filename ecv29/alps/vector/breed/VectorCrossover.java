@@ -37,8 +37,6 @@ public class VectorCrossover extends VectorCrossoverPipeline
 	/** Temporary holding place for alps parent selection */
 	private VectorIndividual alpsParents[];
 
-	private final String ALPS_SELECTION_PRESSURE = "alps.selection-pressure";
-
 
 	public int produce(final int min, 
 			final int max, 
@@ -50,7 +48,7 @@ public class VectorCrossover extends VectorCrossoverPipeline
 			final HashMap<String,Object> misc) 
 
 	{
-		double selctionPressure = state.parameters.getDouble(new Parameter(ALPS_SELECTION_PRESSURE), null);
+		double selctionPressure = Engine.config.selectionPressure;
 
 		// how many individuals should we make?
 		int n = typicalIndsProduced();
@@ -31,8 +31,6 @@ import ec.util.*;
 public class VectorMutation extends VectorMutationPipeline
 {
 
-	private final String ALPS_SELECTION_PRESSURE = "alps.selection-pressure";
-
 
 	public int produce(final int min, 
 			final int max, 
@@ -46,7 +44,7 @@ public class VectorMutation extends VectorMutationPipeline
 		// ECJ 27
 		int start = inds.size();
 
-		double slectionPressure = state.parameters.getDouble(new Parameter(ALPS_SELECTION_PRESSURE), null);
+		double slectionPressure = Engine.config.selectionPressure;
 		int n;
 
 